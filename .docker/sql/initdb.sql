@@ -13,6 +13,8 @@ create table public.car_park_availability
 (
     id             bigint generated by default as identity
         primary key,
+    lot_type       varchar(1) default 'C' not null,
+    total_lots     integer default 0 not null,
     available_lots integer not null,
     last_updated   timestamp(6) with time zone,
     car_park_id    varchar(255)
@@ -23,5 +25,38 @@ create table public.car_park_availability
 alter table public.car_park_availability
     owner to wego;
 
-create unique index uniq_cpa_carparkid
-    on public.car_park_availability (car_park_id);
+-- One row per car park and lot type (C car, Y motorcycle, H heavy vehicle)
+alter table public.car_park_availability
+    add constraint uk_availability_carpark_lot_type unique (car_park_id, lot_type);
+
+-- Database-side nearest search (carpark.search.mode=database)
+CREATE EXTENSION IF NOT EXISTS cube;
+CREATE EXTENSION IF NOT EXISTS earthdistance;
+
+CREATE INDEX IF NOT EXISTS idx_carpark_earth
+    ON public.car_parks USING gist (ll_to_earth(latitude, longitude));
+
+-- Availability history (carpark.history.enabled), partitioned by UTC day; day partitions are created by the app
+CREATE TABLE IF NOT EXISTS car_park_availability_history (
+    car_park_id text NOT NULL,
+    lot_type text NOT NULL,
+    available_lots int NOT NULL,
+    recorded_at timestamptz NOT NULL
+) PARTITION BY RANGE (recorded_at);
+
+CREATE TABLE IF NOT EXISTS car_park_availability_history_default
+    PARTITION OF car_park_availability_history DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_availability_history_carpark
+    ON car_park_availability_history (car_park_id, recorded_at);
+
+CREATE TABLE IF NOT EXISTS car_park_availability_hourly (
+    car_park_id text NOT NULL,
+    lot_type text NOT NULL,
+    hour timestamptz NOT NULL,
+    min_available int NOT NULL,
+    avg_available double precision NOT NULL,
+    max_available int NOT NULL,
+    samples int NOT NULL,
+    PRIMARY KEY (car_park_id, lot_type, hour)
+);
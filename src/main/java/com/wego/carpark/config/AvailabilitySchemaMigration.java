@@ -0,0 +1,78 @@
+package com.wego.carpark.config;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.orm.jpa.EntityManagerFactoryDependsOnPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.List;
+
+/**
+ * Moves a {@code car_park_availability} table created for one row per car park to one row per car park and
+ * lot type. Older schemas carry a unique constraint (Hibernate's {@code @JoinColumn(unique = true)}) or a
+ * unique index ({@code uniq_cpa_carparkid}) on {@code car_park_id} alone, which {@code ddl-auto: update}
+ * never drops; a car park's second lot type would violate it. Runs before Hibernate builds its
+ * schema, only on Postgres, and every step is idempotent. A missing table is left for Hibernate to create.
+ */
+@Slf4j
+@Configuration
+public class AvailabilitySchemaMigration {
+    static final String TABLE = "car_park_availability";
+    static final String UNIQUE_CAR_PARK_LOT_TYPE = "uk_availability_carpark_lot_type";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AvailabilitySchemaMigration(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Bean
+    static EntityManagerFactoryDependsOnPostProcessor availabilitySchemaMigrationDependency() {
+        return new EntityManagerFactoryDependsOnPostProcessor(AvailabilitySchemaMigration.class);
+    }
+
+    @PostConstruct
+    public void migrate() {
+        String product = jdbcTemplate.execute((ConnectionCallback<String>) connection ->
+                connection.getMetaData().getDatabaseProductName());
+        if (!"PostgreSQL".equals(product)) return;
+        Boolean exists = jdbcTemplate.queryForObject("SELECT to_regclass(?) IS NOT NULL", Boolean.class, TABLE);
+        if (!Boolean.TRUE.equals(exists)) return;
+
+        jdbcTemplate.execute("ALTER TABLE " + TABLE
+                + " ADD COLUMN IF NOT EXISTS lot_type varchar(1) DEFAULT 'C' NOT NULL");
+        jdbcTemplate.execute("ALTER TABLE " + TABLE
+                + " ADD COLUMN IF NOT EXISTS total_lots integer DEFAULT 0 NOT NULL");
+
+        List<String> constraints = jdbcTemplate.queryForList("""
+            SELECT quote_ident(c.conname) FROM pg_constraint c
+            JOIN pg_attribute a ON a.attrelid = c.conrelid AND a.attname = 'car_park_id'
+            WHERE c.conrelid = to_regclass(?) AND c.contype = 'u' AND c.conkey = ARRAY[a.attnum]""",
+                String.class, TABLE);
+        for (String constraint : constraints) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " DROP CONSTRAINT " + constraint);
+            log.info("Dropped single-column unique constraint {} on {}", constraint, TABLE);
+        }
+        List<String> indexes = jdbcTemplate.queryForList("""
+            SELECT i.indexrelid::regclass::text FROM pg_index i
+            JOIN pg_attribute a ON a.attrelid = i.indrelid AND a.attname = 'car_park_id'
+            WHERE i.indrelid = to_regclass(?) AND i.indisunique AND NOT i.indisprimary
+              AND i.indkey::int2[] = ARRAY[a.attnum]""", String.class, TABLE);
+        for (String index : indexes) {
+            jdbcTemplate.execute("DROP INDEX " + index);
+            log.info("Dropped single-column unique index {} on {}", index, TABLE);
+        }
+
+        Boolean hasComposite = jdbcTemplate.queryForObject(
+                "SELECT EXISTS (SELECT 1 FROM pg_constraint WHERE conrelid = to_regclass(?) AND conname = ?)",
+                Boolean.class, TABLE, UNIQUE_CAR_PARK_LOT_TYPE);
+        if (!Boolean.TRUE.equals(hasComposite)) {
+            jdbcTemplate.execute("ALTER TABLE " + TABLE + " ADD CONSTRAINT " + UNIQUE_CAR_PARK_LOT_TYPE
+                    + " UNIQUE (car_park_id, lot_type)");
+            log.info("Added unique constraint {} on {}", UNIQUE_CAR_PARK_LOT_TYPE, TABLE);
+        }
+    }
+}
@@ -13,11 +13,25 @@ public class CarparkProperties {
     private String availabilityUrl;
     private Cache cache = new Cache();
     private RateLimit rateLimit = new RateLimit();
+    private Index index = new Index();
+    private Search search = new Search();
+    private Batch batch = new Batch();
+    private Poller poller = new Poller();
+    private History history = new History();
+    private Ingest ingest = new Ingest();
+    private Leader leader = new Leader();
+    private Notify notify = new Notify();
+    private Stream stream = new Stream();
+    private Alerts alerts = new Alerts();
+    private Jobs jobs = new Jobs();
 
     @Setter
     @Getter
     public static class Cache {
         private int ttl = 300; // default 5 minutes
+        private boolean enabled = true;
+        private double cellSizeMetres = 50; // origins in the same cell share cached results
+        private long maxEntries = 10_000;
 
     }
 
@@ -27,4 +41,112 @@ public class CarparkProperties {
         private int requestsPerMinute = 100;
 
     }
+
+    @Setter
+    @Getter
+    public static class Index {
+        private double cellSizeDegrees = 0.01; // ~1.1 km grid cells
+        private int retainedSnapshots = 3; // previous versions kept for cursor paging
+
+    }
+
+    @Setter
+    @Getter
+    public static class Search {
+        private SearchMode mode = SearchMode.MEMORY;
+        private Ranking ranking = Ranking.HAVERSINE; // memory mode only
+
+    }
+
+    @Setter
+    @Getter
+    public static class Batch {
+        private int parallelism = Runtime.getRuntime().availableProcessors(); // threads answering batch origins
+
+    }
+
+    @Setter
+    @Getter
+    public static class Poller {
+        private boolean enabled = false; // refresh only via /api/v1/util/update-availability by default
+        private int intervalSeconds = 60; // first delay, and the delay when the upstream period is unknown
+        private int minIntervalSeconds = 15;
+        private int maxIntervalSeconds = 300;
+        private int maxBackoffSeconds = 600; // cap on the delay after consecutive failures
+        private double jitterRatio = 0.1; // +/- fraction applied to every delay
+
+    }
+
+    @Setter
+    @Getter
+    public static class History {
+        private boolean enabled = false;
+        private int rawRetentionDays = 7; // older days are rolled up hourly, then their partition is dropped
+        private int hourlyRetentionDays = 90;
+        private int partitionsAhead = 2; // future days created in advance so inserts never wait on DDL
+        private int maintenanceIntervalMinutes = 60;
+
+    }
+
+    @Setter
+    @Getter
+    public static class Ingest {
+        private int chunkSize = 500; // rows per write transaction
+        private int bufferSize = 2048; // parsed records queued ahead of the writer before the fetch is paused
+
+    }
+
+    @Setter
+    @Getter
+    public static class Leader {
+        private boolean enabled = false; // every node refreshes when off
+        private long lockKey = 0x43415250L; // pg advisory lock shared by all replicas
+        private int leaseSeconds = 30; // a silent leader's session is closed, and its lock freed, after this long
+
+    }
+
+    @Setter
+    @Getter
+    public static class Notify {
+        private boolean enabled = false; // Postgres LISTEN/NOTIFY between replicas
+        private String channel = "carpark_availability";
+        private int pollMillis = 500; // longest wait for notifications before checking for shutdown
+        private int reconnectSeconds = 5; // pause before re-listening after the connection dropped
+
+    }
+
+    @Setter
+    @Getter
+    public static class Stream {
+        private int bufferSize = 16; // refreshes held per slow subscriber before the oldest is dropped
+        private int maxSubscribers = 1000;
+        private int heartbeatSeconds = 15; // keeps idle connections open through proxies
+
+    }
+
+    @Setter
+    @Getter
+    public static class Alerts {
+        private int maxSubscriptions = 100000; // subscriptions are held in memory
+
+    }
+
+    @Setter
+    @Getter
+    public static class Jobs {
+        private int threads = 1; // import and refresh jobs running at once
+        private int queueCapacity = 4; // jobs waiting for a thread before submissions are rejected
+        private int retainedJobs = 100; // finished jobs kept for status requests
+
+    }
+
+    public enum SearchMode {
+        MEMORY,   // spatial grid over the in-memory index
+        DATABASE  // KNN ordering inside Postgres via earthdistance
+    }
+
+    public enum Ranking {
+        HAVERSINE, // great-circle distance per candidate
+        PLANAR     // squared SVY21 distance per candidate, haversine only for the reported rows
+    }
 }
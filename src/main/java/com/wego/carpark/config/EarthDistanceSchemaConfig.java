@@ -0,0 +1,35 @@
+package com.wego.carpark.config;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Ensures the extensions and GiST index used by database-side nearest search exist.
+ * Only active when {@code carpark.search.mode=database}; the statements are idempotent.
+ */
+@Slf4j
+@Configuration
+@ConditionalOnProperty(prefix = "carpark.search", name = "mode", havingValue = "database")
+public class EarthDistanceSchemaConfig {
+    private final JdbcTemplate jdbcTemplate;
+
+    public EarthDistanceSchemaConfig(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensureSchema() {
+        try {
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS cube");
+            jdbcTemplate.execute("CREATE EXTENSION IF NOT EXISTS earthdistance");
+            jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_carpark_earth ON car_parks "
+                    + "USING gist (ll_to_earth(latitude, longitude))");
+        } catch (Exception ex) {
+            log.warn("Could not prepare earthdistance schema for database search mode: {}", ex.getMessage());
+        }
+    }
+}
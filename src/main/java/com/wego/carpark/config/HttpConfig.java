@@ -2,20 +2,19 @@ package com.wego.carpark.config;
 
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
-import org.springframework.web.reactive.function.client.ExchangeStrategies;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
 
 @Configuration
 public class HttpConfig {
 
+    // No maxInMemorySize override: the availability payload is streamed, not buffered.
+    // compress(true) sends Accept-Encoding: gzip and inflates compressed responses as they stream in.
     @Bean
     public WebClient webClient() {
         return WebClient.builder()
-                .exchangeStrategies(
-                        ExchangeStrategies.builder()
-                                .codecs(c -> c.defaultCodecs().maxInMemorySize(5 * 1024 * 1024))
-                                .build()
-                )
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create().compress(true)))
                 .build();
     }
 }
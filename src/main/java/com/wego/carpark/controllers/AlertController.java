@@ -0,0 +1,41 @@
+package com.wego.carpark.controllers;
+
+import com.wego.carpark.dto.requests.AlertSubscriptionRequest;
+import com.wego.carpark.services.AvailabilityAlertService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.net.URI;
+
+@RestController
+@RequestMapping("/api/v1/alerts")
+public class AlertController {
+    private final AvailabilityAlertService alertService;
+
+    public AlertController(AvailabilityAlertService alertService) {
+        this.alertService = alertService;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> subscribe(@Valid @RequestBody AlertSubscriptionRequest request) {
+        return alertService.subscribe(request)
+                .<ResponseEntity<?>>map(subscription -> ResponseEntity
+                        .created(URI.create("/api/v1/alerts/" + subscription.id()))
+                        .body(subscription))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> getSubscription(@PathVariable long id) {
+        return alertService.find(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<?> unsubscribe(@PathVariable long id) {
+        return alertService.unsubscribe(id) ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+}
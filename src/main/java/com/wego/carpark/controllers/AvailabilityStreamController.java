@@ -0,0 +1,59 @@
+package com.wego.carpark.controllers;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.dto.requests.AvailabilityStreamRequest;
+import com.wego.carpark.dto.responses.AvailabilityDelta;
+import com.wego.carpark.services.AvailabilityStreamService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.ModelAttribute;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/v1/carparks")
+public class AvailabilityStreamController {
+    static final String AVAILABILITY_EVENT = "availability";
+    static final String RESYNC_EVENT = "resync";
+
+    private final AvailabilityStreamService streamService;
+    private final CarparkProperties carparkProperties;
+
+    public AvailabilityStreamController(AvailabilityStreamService streamService, CarparkProperties carparkProperties) {
+        this.streamService = streamService;
+        this.carparkProperties = carparkProperties;
+    }
+
+    // Server-Sent Events: "availability" carries the deltas of one refresh, "resync" asks for a full reload
+    @GetMapping(value = "/availability/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<Flux<ServerSentEvent<List<AvailabilityDelta>>>> streamAvailability(
+            @Valid @ModelAttribute AvailabilityStreamRequest request
+    ) {
+        Duration heartbeat = Duration.ofSeconds(Math.max(1, carparkProperties.getStream().getHeartbeatSeconds()));
+        return streamService.subscribe(request)
+                .map(updates -> ResponseEntity.ok(Flux.merge(
+                        updates.map(AvailabilityStreamController::toEvent),
+                        Flux.interval(heartbeat)
+                                .onBackpressureDrop()
+                                .map(tick -> ServerSentEvent.<List<AvailabilityDelta>>builder()
+                                        .comment("keepalive")
+                                        .build()))))
+                .orElseGet(() -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+    }
+
+    private static ServerSentEvent<List<AvailabilityDelta>> toEvent(AvailabilityStreamService.Update update) {
+        // EventSource does not dispatch events without data, so a resync carries an empty list
+        if (update.resync()) {
+            return ServerSentEvent.builder(List.<AvailabilityDelta>of()).event(RESYNC_EVENT).build();
+        }
+        return ServerSentEvent.builder(update.deltas()).event(AVAILABILITY_EVENT).build();
+    }
+}
@@ -1,17 +1,17 @@
 package com.wego.carpark.controllers;
 
+import com.wego.carpark.dto.requests.NearestCarParksBatchRequest;
 import com.wego.carpark.dto.requests.NearestCarParksRequest;
-import com.wego.carpark.dto.responses.CarParkResponse;
 import com.wego.carpark.services.CarParkService;
 import jakarta.validation.Valid;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
-
 @RestController
 @RequestMapping("/api/v1/carparks")
 public class CarParkController {
+    static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+
     private CarParkService carParkService;
 
     public CarParkController(CarParkService carParkService) {
@@ -22,12 +22,18 @@ public class CarParkController {
     public ResponseEntity<?> getNearestCarParks(
             @Valid @ModelAttribute NearestCarParksRequest request // Automatically validated
     ) {
-        List<CarParkResponse> result = carParkService.findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        );
-        return ResponseEntity.ok(result);
+        CarParkService.NearestPage result = carParkService.findNearestCarParks(request);
+        var response = ResponseEntity.ok();
+        if (result.nextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, result.nextCursor());
+        }
+        return response.body(result.items());
+    }
+
+    @PostMapping("/nearest/batch")
+    public ResponseEntity<?> getNearestCarParksBatch(
+            @Valid @RequestBody NearestCarParksBatchRequest request
+    ) {
+        return ResponseEntity.ok(carParkService.findNearestCarParksBatch(request.getOrigins()));
     }
 }
@@ -1,38 +1,51 @@
 package com.wego.carpark.controllers;
 
-import com.wego.carpark.services.CarParkAvailabilityUpdateService;
-import com.wego.carpark.services.CarParkImportService;
+import com.wego.carpark.services.JobService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
+import java.net.URI;
+
 @RestController
 @RequestMapping("/api/v1/util")
 public class UtilityController {
-    private final CarParkImportService importService;
-    private final CarParkAvailabilityUpdateService carParkAvailabilityUpdateService;
+    private final JobService jobService;
 
-    public UtilityController(CarParkImportService importService, CarParkAvailabilityUpdateService carParkAvailabilityUpdateService) {
-        this.importService = importService;
-        this.carParkAvailabilityUpdateService = carParkAvailabilityUpdateService;
+    public UtilityController(JobService jobService) {
+        this.jobService = jobService;
     }
 
     @GetMapping("/import-carparks")
     public ResponseEntity<?> importCarParks(
             @RequestParam(defaultValue = "data/carparks.csv") String path) {
-        try {
-            var result = importService.importFromCsv(path);
-            return ResponseEntity.ok(result);
-        } catch (Exception e) {
-            return ResponseEntity.badRequest().body("Import failed: " + e.getMessage());
-        }
+        return accepted(jobService.submitImport(path));
     }
 
     @GetMapping("/update-availability")
     public ResponseEntity<?> updateAvailability() {
-        var result = carParkAvailabilityUpdateService.updateOnce();
-        return ResponseEntity.ok(result);
+        return accepted(jobService.submitAvailabilityRefresh());
+    }
+
+    @GetMapping("/jobs/{id}")
+    public ResponseEntity<?> getJob(@PathVariable String id) {
+        return jobService.find(id)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    // A new or coalesced job is 202 with its status URL; a clashing one 409; a full queue 503
+    private static ResponseEntity<?> accepted(JobService.Submission submission) {
+        return switch (submission.outcome()) {
+            case ACCEPTED, COALESCED -> ResponseEntity.accepted()
+                    .location(URI.create("/api/v1/util/jobs/" + submission.job().id()))
+                    .body(submission.job());
+            case CONFLICT -> ResponseEntity.status(HttpStatus.CONFLICT).body(submission.job());
+            case REJECTED -> ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body("Job queue is full");
+        };
     }
 }
@@ -0,0 +1,27 @@
+package com.wego.carpark.dto.requests;
+
+import com.wego.carpark.events.AvailabilityAlert;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class AlertSubscriptionRequest {
+    @NotBlank(message = "Car park id is required")
+    private String carParkId;
+
+    // Upstream lot type code: C (car), Y (motorcycle), H (heavy vehicle)
+    @Pattern(regexp = "[A-Z]", message = "Lot type must be a single upper-case letter such as C, Y or H")
+    private String lotType = "C";
+
+    @NotNull(message = "Threshold is required")
+    @Min(value = 0, message = "Threshold must not be negative")
+    private Integer threshold;
+
+    @NotNull(message = "Direction is required, BELOW or ABOVE")
+    private AvailabilityAlert.Direction direction;
+}
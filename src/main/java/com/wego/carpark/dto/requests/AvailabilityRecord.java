@@ -0,0 +1,9 @@
+package com.wego.carpark.dto.requests;
+
+/**
+ * One lot type of one car park from the availability API. Counts that are missing or not numeric are -1.
+ *
+ * @param timestamp snapshot timestamp of the payload item the record belongs to, null if not seen yet
+ */
+public record AvailabilityRecord(String carParkNumber, String lotType, int totalLots, int availableLots,
+                                 String updateDatetime, String timestamp) {}
@@ -0,0 +1,38 @@
+package com.wego.carpark.dto.requests;
+
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+// No bounding box and no ids streams every car park
+@Getter
+@Setter
+public class AvailabilityStreamRequest {
+    @Min(value = -90, message = "Latitude must be between -90 and 90 degrees")
+    @Max(value = 90, message = "Latitude must be between -90 and 90 degrees")
+    private Double minLatitude;
+
+    @Min(value = -90, message = "Latitude must be between -90 and 90 degrees")
+    @Max(value = 90, message = "Latitude must be between -90 and 90 degrees")
+    private Double maxLatitude;
+
+    @Min(value = -180, message = "Longitude must be between -180 and 180 degrees")
+    @Max(value = 180, message = "Longitude must be between -180 and 180 degrees")
+    private Double minLongitude;
+
+    @Min(value = -180, message = "Longitude must be between -180 and 180 degrees")
+    @Max(value = 180, message = "Longitude must be between -180 and 180 degrees")
+    private Double maxLongitude;
+
+    @Size(max = 500, message = "A stream cannot follow more than 500 car parks")
+    private List<String> ids;
+
+    // Upstream lot type code: C (car), Y (motorcycle), H (heavy vehicle)
+    @Pattern(regexp = "[A-Z]", message = "Lot type must be a single upper-case letter such as C, Y or H")
+    private String lotType = "C";
+}
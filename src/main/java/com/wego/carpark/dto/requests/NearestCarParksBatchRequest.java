@@ -0,0 +1,39 @@
+package com.wego.carpark.dto.requests;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class NearestCarParksBatchRequest {
+    @NotEmpty(message = "At least one origin is required")
+    @Size(max = 500, message = "A batch cannot exceed 500 origins")
+    private List<@Valid @NotNull Origin> origins;
+
+    @Getter
+    @Setter
+    public static class Origin {
+        @NotNull(message = "Latitude is required")
+        @Min(value = -90, message = "Latitude must be between -90 and 90 degrees")
+        @Max(value = 90, message = "Latitude must be between -90 and 90 degrees")
+        private Double latitude;
+
+        @NotNull(message = "Longitude is required")
+        @Min(value = -180, message = "Longitude must be between -180 and 180 degrees")
+        @Max(value = 180, message = "Longitude must be between -180 and 180 degrees")
+        private Double longitude;
+
+        @Min(value = 1, message = "k must be at least 1")
+        @Max(value = 100, message = "k cannot exceed 100")
+        private int k = 10;
+
+    }
+}
@@ -3,6 +3,8 @@ package com.wego.carpark.dto.requests;
 import jakarta.validation.constraints.Max;
 import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Positive;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -25,4 +27,17 @@ public class NearestCarParksRequest {
     @Min(value = 1, message = "Items per page must be at least 1")
     @Max(value = 100, message = "Items per page cannot exceed 100")
     private int perPage = 10;
+
+    @Positive(message = "Max distance must be positive")
+    private Double maxDistanceKm;
+
+    // Upstream lot type code: C (car), Y (motorcycle), H (heavy vehicle)
+    @Pattern(regexp = "[A-Z]", message = "Lot type must be a single upper-case letter such as C, Y or H")
+    private String lotType = "C";
+
+    @Min(value = 1, message = "Minimum available lots must be at least 1")
+    private int minAvailableLots = 1;
+
+    // Opaque keyset cursor from the previous page's X-Next-Cursor header; takes precedence over page
+    private String cursor;
 }
@@ -0,0 +1,14 @@
+package com.wego.carpark.dto.responses;
+
+import lombok.*;
+
+import java.time.Instant;
+
+@Getter
+@Setter
+@Builder
+public class AvailabilityDelta {
+    private String id;
+    private int availableLots;
+    private Instant lastUpdated;
+}
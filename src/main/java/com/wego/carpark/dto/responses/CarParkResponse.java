@@ -9,6 +9,7 @@ public class CarParkResponse {
     private String address;
     private double latitude;
     private double longitude;
+    private String lotType;
     private int totalLots;
     private int availableLots;
     private double distance;
@@ -3,22 +3,36 @@ package com.wego.carpark.entities;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnDefault;
 
 import java.time.Instant;
 
 @Entity
-@Table(name = "car_park_availability")
+@Table(name = "car_park_availability",
+        uniqueConstraints = @UniqueConstraint(name = "uk_availability_carpark_lot_type",
+                columnNames = {"car_park_id", "lot_type"}))
 @Getter
 @Setter
 public class CarParkAvailability {
+    /** Upstream lot type codes: C (car), Y (motorcycle), H (heavy vehicle). */
+    public static final String CAR = "C";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
-    @JoinColumn(name = "car_park_id", unique = true)
+    @JoinColumn(name = "car_park_id")
     private CarPark carPark;
 
+    @Column(nullable = false, length = 1)
+    @ColumnDefault("'C'")
+    private String lotType = CAR;
+
+    // Lots of this type; 0 when upstream did not report it
+    @ColumnDefault("0")
+    private int totalLots;
+
     private int availableLots;
 
     private Instant lastUpdated;
@@ -0,0 +1,13 @@
+package com.wego.carpark.events;
+
+import java.time.Instant;
+
+/** A car park's available lots crossed a subscribed threshold between two refreshes. */
+public record AvailabilityAlert(long subscriptionId, String carParkId, String lotType, Direction direction,
+                                int threshold, int previousLots, int availableLots, Instant lastUpdated) {
+
+    public enum Direction {
+        BELOW, // fires when available lots drop from at least the threshold to under it
+        ABOVE  // fires when available lots rise from at most the threshold to over it
+    }
+}
@@ -0,0 +1,41 @@
+package com.wego.carpark.events;
+
+import com.wego.carpark.repositories.AvailabilityKey;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Published when car park metadata or availability has been written, so that in-memory
+ * read structures can be refreshed once the surrounding transaction commits. When
+ * {@code carParkIds} is known, only those car parks changed and listeners may patch
+ * instead of reloading; a null set means the scope is unknown. {@code changedLots}
+ * narrows that to the (car park, lot type) rows that changed; when null, any lot type
+ * of those car parks may have.
+ */
+public record CarParkDataChangedEvent(Source source, Set<String> carParkIds, Set<AvailabilityKey> changedLots) {
+
+    public CarParkDataChangedEvent(Source source) {
+        this(source, null, null);
+    }
+
+    public CarParkDataChangedEvent(Source source, Set<String> carParkIds) {
+        this(source, carParkIds, null);
+    }
+
+    /** Availability changed for exactly these rows. */
+    public static CarParkDataChangedEvent availabilityChanged(Set<AvailabilityKey> changedLots) {
+        Set<String> carParkIds = new HashSet<>();
+        changedLots.forEach(key -> carParkIds.add(key.carParkId()));
+        return new CarParkDataChangedEvent(Source.AVAILABILITY, Set.copyOf(carParkIds), Set.copyOf(changedLots));
+    }
+
+    public boolean isIncremental() {
+        return carParkIds != null;
+    }
+
+    public enum Source {
+        IMPORT,
+        AVAILABILITY
+    }
+}
@@ -0,0 +1,193 @@
+package com.wego.carpark.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only availability history, range-partitioned by UTC day, plus hourly min/avg/max rollups.
+ * Raw rows go to {@code car_park_availability_history_pYYYYMMDD}; rows for a day without a partition
+ * land in the default partition so that inserts never fail.
+ */
+@Repository
+public class AvailabilityHistoryRepository {
+    static final String TABLE = "car_park_availability_history";
+    private static final String PARTITION_PREFIX = TABLE + "_p";
+    private static final String DEFAULT_PARTITION = TABLE + "_default";
+    private static final DateTimeFormatter PARTITION_SUFFIX = DateTimeFormatter.BASIC_ISO_DATE;
+    // DDL on a partition locks the parent; give up quickly rather than queue ahead of live inserts
+    private static final String LOCK_TIMEOUT = "SET LOCAL lock_timeout = '2s'";
+
+    private static final String INSERT_ALL = """
+        INSERT INTO car_park_availability_history (car_park_id, lot_type, available_lots, recorded_at)
+        SELECT * FROM unnest(?::text[], ?::text[], ?::int[], ?::timestamptz[])
+        """;
+
+    // Merges into any bucket a previous rollup already wrote, e.g. when late rows of an already rolled-up
+    // day landed in the default partition, instead of replacing it with an aggregate of only the new rows
+    private static final String ROLLUP = """
+        INSERT INTO car_park_availability_hourly AS h
+            (car_park_id, lot_type, hour, min_available, avg_available, max_available, samples)
+        SELECT car_park_id, lot_type, date_trunc('hour', recorded_at), min(available_lots), avg(available_lots),
+               max(available_lots), count(*)
+        FROM %s
+        WHERE recorded_at >= ? AND recorded_at < ?
+        GROUP BY car_park_id, lot_type, date_trunc('hour', recorded_at)
+        ON CONFLICT (car_park_id, lot_type, hour) DO UPDATE SET
+            min_available = LEAST(h.min_available, EXCLUDED.min_available),
+            avg_available = (h.avg_available * h.samples + EXCLUDED.avg_available * EXCLUDED.samples)
+                / (h.samples + EXCLUDED.samples),
+            max_available = GREATEST(h.max_available, EXCLUDED.max_available),
+            samples = h.samples + EXCLUDED.samples
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AvailabilityHistoryRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /** Creates the partitioned table, its default partition and the hourly rollup table if missing. */
+    public void ensureSchema() {
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS car_park_availability_history (
+                car_park_id text NOT NULL,
+                lot_type text NOT NULL,
+                available_lots int NOT NULL,
+                recorded_at timestamptz NOT NULL
+            ) PARTITION BY RANGE (recorded_at)""");
+        jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS car_park_availability_history_default "
+                + "PARTITION OF car_park_availability_history DEFAULT");
+        jdbcTemplate.execute("CREATE INDEX IF NOT EXISTS idx_availability_history_carpark "
+                + "ON car_park_availability_history (car_park_id, recorded_at)");
+        jdbcTemplate.execute("""
+            CREATE TABLE IF NOT EXISTS car_park_availability_hourly (
+                car_park_id text NOT NULL,
+                lot_type text NOT NULL,
+                hour timestamptz NOT NULL,
+                min_available int NOT NULL,
+                avg_available double precision NOT NULL,
+                max_available int NOT NULL,
+                samples int NOT NULL,
+                PRIMARY KEY (car_park_id, lot_type, hour)
+            )""");
+    }
+
+    /** Appends one row per element of the parallel arrays in a single statement. */
+    public int insertAll(String[] carParkIds, String[] lotTypes, int[] availableLots, Instant[] recordedAt) {
+        if (carParkIds.length != lotTypes.length || carParkIds.length != availableLots.length
+                || carParkIds.length != recordedAt.length) {
+            throw new IllegalArgumentException("History arrays must have the same length");
+        }
+        if (carParkIds.length == 0) return 0;
+
+        Integer[] lots = new Integer[availableLots.length];
+        Timestamp[] timestamps = new Timestamp[recordedAt.length];
+        for (int i = 0; i < carParkIds.length; i++) {
+            lots[i] = availableLots[i];
+            timestamps[i] = Timestamp.from(recordedAt[i]);
+        }
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(INSERT_ALL);
+            statement.setArray(1, connection.createArrayOf("text", carParkIds));
+            statement.setArray(2, connection.createArrayOf("text", lotTypes));
+            statement.setArray(3, connection.createArrayOf("int4", lots));
+            statement.setArray(4, connection.createArrayOf("timestamptz", timestamps));
+            return statement;
+        });
+    }
+
+    /** Days that currently have their own partition, oldest first. */
+    public List<LocalDate> findPartitionDays() {
+        List<String> names = jdbcTemplate.queryForList("""
+            SELECT c.relname FROM pg_inherits i
+            JOIN pg_class c ON c.oid = i.inhrelid
+            JOIN pg_class p ON p.oid = i.inhparent
+            WHERE p.relname = ?""", String.class, TABLE);
+        List<LocalDate> days = new ArrayList<>();
+        for (String name : names) {
+            if (name.startsWith(PARTITION_PREFIX)) {
+                days.add(LocalDate.parse(name.substring(PARTITION_PREFIX.length()), PARTITION_SUFFIX));
+            }
+        }
+        days.sort(null);
+        return days;
+    }
+
+    /**
+     * Creates the partition for one day. Rows of that day already in the default partition would make
+     * a plain {@code PARTITION OF} fail, so they are moved into a new table that is then attached.
+     */
+    @Transactional
+    public void createPartition(LocalDate day) {
+        jdbcTemplate.execute(LOCK_TIMEOUT);
+        String name = partitionName(day);
+        String bounds = "FOR VALUES FROM ('" + startOf(day) + "') TO ('" + startOf(day.plusDays(1)) + "')";
+        Timestamp from = Timestamp.from(startOf(day));
+        Timestamp to = Timestamp.from(startOf(day.plusDays(1)));
+        Boolean stranded = jdbcTemplate.queryForObject("SELECT EXISTS (SELECT 1 FROM " + DEFAULT_PARTITION
+                + " WHERE recorded_at >= ? AND recorded_at < ?)", Boolean.class, from, to);
+        if (!Boolean.TRUE.equals(stranded)) {
+            jdbcTemplate.execute("CREATE TABLE IF NOT EXISTS " + name + " PARTITION OF " + TABLE + " " + bounds);
+            return;
+        }
+        jdbcTemplate.execute("CREATE TABLE " + name + " (LIKE " + TABLE + " INCLUDING DEFAULTS)");
+        jdbcTemplate.update("WITH moved AS (DELETE FROM " + DEFAULT_PARTITION
+                + " WHERE recorded_at >= ? AND recorded_at < ? RETURNING *) INSERT INTO " + name
+                + " SELECT * FROM moved", from, to);
+        jdbcTemplate.execute("ALTER TABLE " + TABLE + " ATTACH PARTITION " + name + " " + bounds);
+    }
+
+    /**
+     * Merges a day's partition into the hourly buckets and drops it in one transaction, so its rows are
+     * counted exactly once even when the drop times out and the day is rolled up again on a later run.
+     */
+    @Transactional
+    public int rollupAndDropPartition(LocalDate day) {
+        jdbcTemplate.execute(LOCK_TIMEOUT);
+        int hours = rollup(partitionName(day), day);
+        jdbcTemplate.execute("DROP TABLE IF EXISTS " + partitionName(day));
+        return hours;
+    }
+
+    /** Merges one day of rows stranded in the default partition into the hourly buckets and deletes them. */
+    @Transactional
+    public int rollupAndDeleteDefaultDay(LocalDate day) {
+        int hours = rollup(DEFAULT_PARTITION, day);
+        jdbcTemplate.update("DELETE FROM " + DEFAULT_PARTITION + " WHERE recorded_at >= ? AND recorded_at < ?",
+                Timestamp.from(startOf(day)), Timestamp.from(startOf(day.plusDays(1))));
+        return hours;
+    }
+
+    /** UTC days before {@code cutoff} that still have rows in the default partition, oldest first. */
+    public List<LocalDate> findDefaultDaysBefore(Instant cutoff) {
+        return jdbcTemplate.queryForList("SELECT DISTINCT (recorded_at AT TIME ZONE 'UTC')::date FROM "
+                + DEFAULT_PARTITION + " WHERE recorded_at < ? ORDER BY 1", LocalDate.class, Timestamp.from(cutoff));
+    }
+
+    public int deleteHourlyBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM car_park_availability_hourly WHERE hour < ?", Timestamp.from(cutoff));
+    }
+
+    static String partitionName(LocalDate day) {
+        return PARTITION_PREFIX + PARTITION_SUFFIX.format(day);
+    }
+
+    private static Instant startOf(LocalDate day) {
+        return day.atStartOfDay(ZoneOffset.UTC).toInstant();
+    }
+
+    private int rollup(String source, LocalDate day) {
+        return jdbcTemplate.update(ROLLUP.formatted(source), Timestamp.from(startOf(day)),
+                Timestamp.from(startOf(day.plusDays(1))));
+    }
+}
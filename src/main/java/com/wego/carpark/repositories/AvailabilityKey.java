@@ -0,0 +1,4 @@
+package com.wego.carpark.repositories;
+
+/** Identifies one availability row: a car park and one of its lot types. */
+public record AvailabilityKey(String carParkId, String lotType) {}
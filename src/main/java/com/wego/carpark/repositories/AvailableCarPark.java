@@ -0,0 +1,8 @@
+package com.wego.carpark.repositories;
+
+/**
+ * Flat row of a car park with available lots of one type, read in a single join to build the in-memory
+ * index without loading {@code CarParkAvailability} entities and their lazy {@code carPark} association.
+ */
+public record AvailableCarPark(String id, String address, double latitude, double longitude, String lotType,
+                               int totalLots, int availableLots, Double svy21X, Double svy21Y) {}
@@ -2,22 +2,103 @@ package com.wego.carpark.repositories;
 
 import com.wego.carpark.entities.CarParkAvailability;
 import org.springframework.data.jpa.repository.JpaRepository;
-import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.time.Instant;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
-public interface CarParkAvailabilityRepository extends JpaRepository<CarParkAvailability, Long> {
+public interface CarParkAvailabilityRepository extends JpaRepository<CarParkAvailability, Long>,
+        CarParkAvailabilityRepositoryCustom {
     List<CarParkAvailability> findByAvailableLotsGreaterThan(int minAvailableLots);
-    @Modifying
+
+    // One row per car park and lot type; the car park's total stands in when the type has none
+    @Query("""
+        SELECT new com.wego.carpark.repositories.AvailableCarPark(
+               cp.id, cp.address, cp.latitude, cp.longitude, a.lotType,
+               CASE WHEN a.totalLots > 0 THEN a.totalLots ELSE cp.totalLots END,
+               a.availableLots, cp.svy21X, cp.svy21Y)
+        FROM CarParkAvailability a
+        JOIN a.carPark cp
+        WHERE a.availableLots > 0
+        """)
+    List<AvailableCarPark> findAvailableCarParks();
+
+    // Same projection for a few car parks, including full ones, so a patch can also drop entries
+    @Query("""
+        SELECT new com.wego.carpark.repositories.AvailableCarPark(
+               cp.id, cp.address, cp.latitude, cp.longitude, a.lotType,
+               CASE WHEN a.totalLots > 0 THEN a.totalLots ELSE cp.totalLots END,
+               a.availableLots, cp.svy21X, cp.svy21Y)
+        FROM CarParkAvailability a
+        JOIN a.carPark cp
+        WHERE cp.id IN :carParkIds
+        """)
+    List<AvailableCarPark> findByCarParkIds(@Param("carParkIds") Collection<String> carParkIds);
+
+    @Query("""
+        SELECT new com.wego.carpark.repositories.ChangedAvailability(
+               cp.id, a.lotType, cp.latitude, cp.longitude, a.availableLots, a.lastUpdated)
+        FROM CarParkAvailability a
+        JOIN a.carPark cp
+        WHERE cp.id IN :carParkIds
+        """)
+    List<ChangedAvailability> findChangedAvailability(@Param("carParkIds") Collection<String> carParkIds);
+
+    // KNN ordering through the GiST index on ll_to_earth(latitude, longitude); requires cube + earthdistance.
+    // The lat/lng range is the radius' bounding box (the whole globe when unbounded).
+    @Query(value = """
+        SELECT cp.id AS "id", cp.address AS "address", cp.latitude AS "latitude", cp.longitude AS "longitude",
+               CASE WHEN a.total_lots > 0 THEN a.total_lots ELSE cp.total_lots END AS "totalLots",
+               a.available_lots AS "availableLots",
+               ll_to_earth(cp.latitude, cp.longitude) <-> ll_to_earth(:latitude, :longitude) AS "rankDistance"
+        FROM car_parks cp
+        JOIN car_park_availability a ON a.car_park_id = cp.id
+        WHERE a.lot_type = :lotType
+          AND a.available_lots >= :minAvailableLots
+          AND cp.latitude BETWEEN :minLat AND :maxLat
+          AND cp.longitude BETWEEN :minLon AND :maxLon
+        ORDER BY ll_to_earth(cp.latitude, cp.longitude) <-> ll_to_earth(:latitude, :longitude), cp.id
+        LIMIT :limit OFFSET :offset
+        """, nativeQuery = true)
+    List<NearestCarParkView> findNearestAvailable(@Param("latitude") double latitude,
+                                                  @Param("longitude") double longitude,
+                                                  @Param("minLat") double minLat,
+                                                  @Param("maxLat") double maxLat,
+                                                  @Param("minLon") double minLon,
+                                                  @Param("maxLon") double maxLon,
+                                                  @Param("lotType") String lotType,
+                                                  @Param("minAvailableLots") int minAvailableLots,
+                                                  @Param("limit") int limit,
+                                                  @Param("offset") long offset);
+
     @Query(value = """
-        INSERT INTO car_park_availability (car_park_id, available_lots, last_updated)
-        VALUES (?1, ?2, ?3)
-        ON CONFLICT (car_park_id)
-        DO UPDATE SET available_lots = EXCLUDED.available_lots, last_updated = EXCLUDED.last_updated
+        SELECT cp.id AS "id", cp.address AS "address", cp.latitude AS "latitude", cp.longitude AS "longitude",
+               CASE WHEN a.total_lots > 0 THEN a.total_lots ELSE cp.total_lots END AS "totalLots",
+               a.available_lots AS "availableLots",
+               ll_to_earth(cp.latitude, cp.longitude) <-> ll_to_earth(:latitude, :longitude) AS "rankDistance"
+        FROM car_parks cp
+        JOIN car_park_availability a ON a.car_park_id = cp.id
+        WHERE a.lot_type = :lotType
+          AND a.available_lots >= :minAvailableLots
+          AND cp.latitude BETWEEN :minLat AND :maxLat
+          AND cp.longitude BETWEEN :minLon AND :maxLon
+          AND (ll_to_earth(cp.latitude, cp.longitude) <-> ll_to_earth(:latitude, :longitude), cp.id)
+              > (:afterDistance, :afterId)
+        ORDER BY ll_to_earth(cp.latitude, cp.longitude) <-> ll_to_earth(:latitude, :longitude), cp.id
+        LIMIT :limit
         """, nativeQuery = true)
-    int upsert(String carParkId, int availableLots, Instant lastUpdated);
+    List<NearestCarParkView> findNearestAvailableAfter(@Param("latitude") double latitude,
+                                                       @Param("longitude") double longitude,
+                                                       @Param("minLat") double minLat,
+                                                       @Param("maxLat") double maxLat,
+                                                       @Param("minLon") double minLon,
+                                                       @Param("maxLon") double maxLon,
+                                                       @Param("lotType") String lotType,
+                                                       @Param("minAvailableLots") int minAvailableLots,
+                                                       @Param("afterDistance") double afterDistance,
+                                                       @Param("afterId") String afterId,
+                                                       @Param("limit") int limit);
 }
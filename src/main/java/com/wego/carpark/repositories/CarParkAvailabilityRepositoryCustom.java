@@ -0,0 +1,18 @@
+package com.wego.carpark.repositories;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface CarParkAvailabilityRepositoryCustom {
+
+    /**
+     * Inserts or updates the availability of every given car park and lot type in a single statement.
+     * The arrays are parallel: element {@code i} of each describes one (car park, lot type) row. An existing
+     * row is rewritten only when its total or available lots differ and the incoming {@code lastUpdated} is
+     * newer than the stored one; otherwise it keeps its values and {@code last_updated}, which is therefore
+     * the time of the last change rather than of the last reading.
+     *
+     * @return the rows inserted or rewritten
+     */
+    List<AvailabilityKey> upsertAll(String[] carParkIds, String[] lotTypes, int[] totalLots, int[] availableLots, Instant[] lastUpdated);
+}
@@ -0,0 +1,61 @@
+package com.wego.carpark.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.List;
+
+public class CarParkAvailabilityRepositoryCustomImpl implements CarParkAvailabilityRepositoryCustom {
+    // One round trip per chunk: Postgres expands the arrays into rows server-side.
+    // A row is only rewritten when its counts differ and the reading is newer than the stored one, so
+    // unchanged rows cost no write and a stale or replayed snapshot never overwrites a fresher row.
+    // Every row the statement returns was therefore inserted or changed.
+    private static final String UPSERT_ALL = """
+        INSERT INTO car_park_availability (car_park_id, lot_type, total_lots, available_lots, last_updated)
+        SELECT * FROM unnest(?::text[], ?::text[], ?::int[], ?::int[], ?::timestamptz[])
+        ON CONFLICT (car_park_id, lot_type)
+        DO UPDATE SET total_lots = EXCLUDED.total_lots, available_lots = EXCLUDED.available_lots,
+                      last_updated = EXCLUDED.last_updated
+        WHERE (car_park_availability.total_lots, car_park_availability.available_lots)
+                  IS DISTINCT FROM (EXCLUDED.total_lots, EXCLUDED.available_lots)
+          AND (car_park_availability.last_updated IS NULL
+               OR EXCLUDED.last_updated > car_park_availability.last_updated)
+        RETURNING car_park_id, lot_type
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CarParkAvailabilityRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public List<AvailabilityKey> upsertAll(String[] carParkIds, String[] lotTypes, int[] totalLots,
+                                           int[] availableLots, Instant[] lastUpdated) {
+        int n = carParkIds.length;
+        if (lotTypes.length != n || totalLots.length != n || availableLots.length != n || lastUpdated.length != n) {
+            throw new IllegalArgumentException("Availability arrays must have the same length");
+        }
+        if (n == 0) return List.of();
+
+        Integer[] totals = new Integer[n];
+        Integer[] lots = new Integer[n];
+        Timestamp[] timestamps = new Timestamp[n];
+        for (int i = 0; i < n; i++) {
+            totals[i] = totalLots[i];
+            lots[i] = availableLots[i];
+            timestamps[i] = Timestamp.from(lastUpdated[i]);
+        }
+        return jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(UPSERT_ALL);
+            statement.setArray(1, connection.createArrayOf("text", carParkIds));
+            statement.setArray(2, connection.createArrayOf("text", lotTypes));
+            statement.setArray(3, connection.createArrayOf("int4", totals));
+            statement.setArray(4, connection.createArrayOf("int4", lots));
+            statement.setArray(5, connection.createArrayOf("timestamptz", timestamps));
+            return statement;
+        }, (rs, rowNum) -> new AvailabilityKey(rs.getString(1), rs.getString(2)));
+    }
+}
@@ -1,7 +1,13 @@
 package com.wego.carpark.repositories;
 
 import com.wego.carpark.entities.CarPark;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 
-public interface CarParkRepository extends CrudRepository<CarPark, String> {
+import java.util.List;
+
+public interface CarParkRepository extends CrudRepository<CarPark, String>, CarParkRepositoryCustom {
+
+    @Query("SELECT new com.wego.carpark.repositories.CarParkTotalLots(c.id, c.totalLots) FROM CarPark c")
+    List<CarParkTotalLots> findAllTotalLots();
 }
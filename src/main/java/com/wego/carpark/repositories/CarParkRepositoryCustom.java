@@ -0,0 +1,12 @@
+package com.wego.carpark.repositories;
+
+public interface CarParkRepositoryCustom {
+
+    /**
+     * Sets the total lots of the given car parks in a single statement, only where it is still 0.
+     * The arrays are parallel: element {@code i} of each describes one car park.
+     *
+     * @return the number of car parks updated
+     */
+    int fillZeroTotalLots(String[] carParkIds, int[] totalLots);
+}
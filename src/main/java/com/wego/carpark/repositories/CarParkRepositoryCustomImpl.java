@@ -0,0 +1,39 @@
+package com.wego.carpark.repositories;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.PreparedStatement;
+
+public class CarParkRepositoryCustomImpl implements CarParkRepositoryCustom {
+    private static final String FILL_ZERO_TOTAL_LOTS = """
+        UPDATE car_parks cp
+        SET total_lots = v.total_lots
+        FROM unnest(?::text[], ?::int[]) AS v(id, total_lots)
+        WHERE cp.id = v.id AND cp.total_lots = 0
+        """;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public CarParkRepositoryCustomImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public int fillZeroTotalLots(String[] carParkIds, int[] totalLots) {
+        if (carParkIds.length != totalLots.length) {
+            throw new IllegalArgumentException("Car park id and total lots arrays must have the same length");
+        }
+        if (carParkIds.length == 0) return 0;
+
+        Integer[] lots = new Integer[totalLots.length];
+        for (int i = 0; i < totalLots.length; i++) {
+            lots[i] = totalLots[i];
+        }
+        return jdbcTemplate.update(connection -> {
+            PreparedStatement statement = connection.prepareStatement(FILL_ZERO_TOTAL_LOTS);
+            statement.setArray(1, connection.createArrayOf("text", carParkIds));
+            statement.setArray(2, connection.createArrayOf("int4", lots));
+            return statement;
+        });
+    }
+}
@@ -0,0 +1,4 @@
+package com.wego.carpark.repositories;
+
+/** Id and total lot count of a car park, read without loading the entity. */
+public record CarParkTotalLots(String id, int totalLots) {}
@@ -0,0 +1,7 @@
+package com.wego.carpark.repositories;
+
+import java.time.Instant;
+
+/** Current availability of one changed car park and lot type, with the coordinates stream filters need. */
+public record ChangedAvailability(String id, String lotType, double latitude, double longitude, int availableLots,
+                                  Instant lastUpdated) {}
@@ -0,0 +1,21 @@
+package com.wego.carpark.repositories;
+
+/**
+ * Row of a database-side nearest search: car park metadata joined with its availability and
+ * the value it was ordered by (the earthdistance {@code <->} operator, in metres).
+ */
+public interface NearestCarParkView {
+    String getId();
+
+    String getAddress();
+
+    double getLatitude();
+
+    double getLongitude();
+
+    int getTotalLots();
+
+    int getAvailableLots();
+
+    double getRankDistance();
+}
@@ -0,0 +1,11 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.events.AvailabilityAlert;
+
+/**
+ * Destination of threshold alerts. Every sink bean receives every alert, on the thread that applied the
+ * refresh, so implementations should hand slow work (push, e-mail, webhooks) off to their own executor.
+ */
+public interface AlertSink {
+    void deliver(AvailabilityAlert alert);
+}
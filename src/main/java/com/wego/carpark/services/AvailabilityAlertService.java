@@ -0,0 +1,192 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.dto.requests.AlertSubscriptionRequest;
+import com.wego.carpark.events.AvailabilityAlert;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.repositories.ChangedAvailability;
+import com.wego.carpark.utils.ThresholdIndex;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Threshold alerts on available lots. Subscriptions are indexed per car park and lot type in two
+ * {@link ThresholdIndex}es, one per direction, next to the last value seen for that row. After a refresh,
+ * only the watched car parks among the changed ones are read back, and for each of them only the
+ * thresholds between the previous and the new value are visited: a drop from {@code old} to {@code new}
+ * fires BELOW thresholds in {@code (new, old]}, a rise fires ABOVE thresholds in {@code [old, new)}.
+ * Alerts go to every {@link AlertSink} bean once the index update is done.
+ * <p>
+ * Subscriptions live in memory, up to {@code carpark.alerts.max-subscriptions}, and are lost on restart.
+ */
+@Slf4j
+@Service
+public class AvailabilityAlertService {
+    private final CarParkAvailabilityRepository availabilityRepository;
+    private final CarParkRegistry carParkRegistry;
+    private final List<AlertSink> sinks;
+    private final CarparkProperties.Alerts properties;
+    private final Counter deliveredAlerts;
+
+    private final AtomicLong nextId = new AtomicLong();
+    private final Map<Long, Subscription> subscriptions = new ConcurrentHashMap<>();
+    // Car park id -> lot type -> thresholds; only modified while holding this service's lock
+    private final Map<String, Map<String, Watch>> watches = new ConcurrentHashMap<>();
+
+    public AvailabilityAlertService(CarParkAvailabilityRepository availabilityRepository,
+                                    CarParkRegistry carParkRegistry, List<AlertSink> sinks,
+                                    CarparkProperties carparkProperties, MeterRegistry meterRegistry) {
+        this.availabilityRepository = availabilityRepository;
+        this.carParkRegistry = carParkRegistry;
+        this.sinks = List.copyOf(sinks);
+        this.properties = carparkProperties.getAlerts();
+        this.deliveredAlerts = Counter.builder("carpark.alerts.delivered")
+                .description("Threshold alerts handed to the alert sinks")
+                .register(meterRegistry);
+        Gauge.builder("carpark.alerts.subscriptions", subscriptions, Map::size)
+                .description("Active threshold alert subscriptions")
+                .register(meterRegistry);
+    }
+
+    /** Registers a subscription, or returns empty when {@code carpark.alerts.max-subscriptions} is reached. */
+    @Transactional(readOnly = true)
+    public Optional<Subscription> subscribe(AlertSubscriptionRequest request) {
+        if (!carParkRegistry.isKnown(request.getCarParkId())) {
+            throw new IllegalArgumentException("Unknown car park: " + request.getCarParkId());
+        }
+        // Seeds the baseline so the first refresh can already fire
+        int currentLots = availabilityRepository.findChangedAvailability(List.of(request.getCarParkId())).stream()
+                .filter(row -> row.lotType().equals(request.getLotType()))
+                .mapToInt(ChangedAvailability::availableLots)
+                .findFirst()
+                .orElse(-1);
+
+        synchronized (this) {
+            if (subscriptions.size() >= properties.getMaxSubscriptions()) return Optional.empty();
+            Subscription subscription = new Subscription(nextId.incrementAndGet(), request.getCarParkId(),
+                    request.getLotType(), request.getThreshold(), request.getDirection(), Instant.now());
+            subscriptions.put(subscription.id(), subscription);
+            Watch watch = watches.computeIfAbsent(subscription.carParkId(), id -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(subscription.lotType(), lotType -> new Watch(currentLots));
+            watch.add(subscription);
+            return Optional.of(subscription);
+        }
+    }
+
+    public Optional<Subscription> find(long subscriptionId) {
+        return Optional.ofNullable(subscriptions.get(subscriptionId));
+    }
+
+    public synchronized boolean unsubscribe(long subscriptionId) {
+        Subscription subscription = subscriptions.remove(subscriptionId);
+        if (subscription == null) return false;
+        Map<String, Watch> byLotType = watches.get(subscription.carParkId());
+        Watch watch = byLotType.get(subscription.lotType());
+        watch.remove(subscription);
+        if (watch.isEmpty()) byLotType.remove(subscription.lotType());
+        if (byLotType.isEmpty()) watches.remove(subscription.carParkId());
+        return true;
+    }
+
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarParkDataChanged(CarParkDataChangedEvent event) {
+        if (watches.isEmpty()) return;
+        // Without a known scope every watched car park is re-read; crossings since the last value still fire
+        Set<String> carParkIds = new HashSet<>(watches.keySet());
+        if (event.isIncremental()) carParkIds.retainAll(event.carParkIds());
+        if (carParkIds.isEmpty()) return;
+
+        List<AvailabilityAlert> alerts = evaluate(availabilityRepository.findChangedAvailability(carParkIds));
+        for (AvailabilityAlert alert : alerts) {
+            for (AlertSink sink : sinks) {
+                try {
+                    sink.deliver(alert);
+                } catch (RuntimeException e) {
+                    log.warn("Alert sink {} failed on subscription {}: {}", sink.getClass().getSimpleName(),
+                            alert.subscriptionId(), e.getMessage());
+                }
+            }
+            deliveredAlerts.increment();
+        }
+    }
+
+    private synchronized List<AvailabilityAlert> evaluate(List<ChangedAvailability> rows) {
+        List<AvailabilityAlert> alerts = new ArrayList<>();
+        for (ChangedAvailability row : rows) {
+            Map<String, Watch> byLotType = watches.get(row.id());
+            Watch watch = byLotType != null ? byLotType.get(row.lotType()) : null;
+            if (watch == null) continue;
+            int previous = watch.lastLots;
+            int current = row.availableLots();
+            watch.lastLots = current;
+            if (previous < 0 || previous == current) continue;
+
+            if (current < previous) {
+                watch.below.forEachInRange(current + 1L, previous + 1L,
+                        id -> alerts.add(alert(subscriptions.get(id), previous, row)));
+            } else {
+                watch.above.forEachInRange(previous, current,
+                        id -> alerts.add(alert(subscriptions.get(id), previous, row)));
+            }
+        }
+        return alerts;
+    }
+
+    private static AvailabilityAlert alert(Subscription subscription, int previousLots, ChangedAvailability row) {
+        return new AvailabilityAlert(subscription.id(), subscription.carParkId(), subscription.lotType(),
+                subscription.direction(), subscription.threshold(), previousLots, row.availableLots(),
+                row.lastUpdated());
+    }
+
+    public record Subscription(long id, String carParkId, String lotType, int threshold,
+                               AvailabilityAlert.Direction direction, Instant createdAt) {}
+
+    /** Thresholds of one car park and lot type, with the last available lots seen (-1 until known). */
+    private static final class Watch {
+        private ThresholdIndex below = ThresholdIndex.empty();
+        private ThresholdIndex above = ThresholdIndex.empty();
+        private int lastLots;
+
+        Watch(int lastLots) {
+            this.lastLots = lastLots;
+        }
+
+        void add(Subscription subscription) {
+            if (subscription.direction() == AvailabilityAlert.Direction.BELOW) {
+                below = below.with(subscription.threshold(), subscription.id());
+            } else {
+                above = above.with(subscription.threshold(), subscription.id());
+            }
+        }
+
+        void remove(Subscription subscription) {
+            below = below.without(subscription.id());
+            above = above.without(subscription.id());
+        }
+
+        boolean isEmpty() {
+            return below.size() == 0 && above.size() == 0;
+        }
+    }
+}
@@ -0,0 +1,229 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.AvailabilityKey;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps the read structures of every replica in step when {@code carpark.notify.enabled} is set. The
+ * ingesting node sends a {@code pg_notify} with the snapshot version and the changed (car park, lot type)
+ * rows from inside each write transaction, so Postgres delivers it only once that transaction commits.
+ * Every node listens on a dedicated connection and republishes what it receives as a local
+ * {@link CarParkDataChangedEvent}, so its index patches in just those car parks, its streams send just
+ * those rows and its response cache is cleared, without reloading the table. An import sends a marker
+ * instead, which other nodes republish as an {@link CarParkDataChangedEvent.Source#IMPORT} so they reload
+ * their registry and index.
+ * <p>
+ * Payloads are {@code nodeId|version|id:lotType,...}, split to stay under the 8000 byte NOTIFY limit, or
+ * {@code nodeId|version|*} after an import. A node ignores its own notifications, having already applied
+ * the change locally. Patches re-read the current rows, so a late or duplicate notification is harmless.
+ * Notifications sent while a node is not listening are lost, so each (re)connect starts with a full reload.
+ */
+@Slf4j
+@Component
+public class AvailabilityChangeNotifier {
+    static final int MAX_PAYLOAD_BYTES = 7900;
+    static final String IMPORT_MARKER = "*";
+
+    private final DataSource dataSource;
+    private final JdbcTemplate jdbcTemplate;
+    private final ApplicationEventPublisher eventPublisher;
+    private final CarparkProperties.Notify properties;
+    private final String nodeId = UUID.randomUUID().toString().substring(0, 8);
+
+    private ScheduledExecutorService listener;
+
+    public AvailabilityChangeNotifier(DataSource dataSource, JdbcTemplate jdbcTemplate,
+                                      ApplicationEventPublisher eventPublisher, CarparkProperties carparkProperties) {
+        this.dataSource = dataSource;
+        this.jdbcTemplate = jdbcTemplate;
+        this.eventPublisher = eventPublisher;
+        this.properties = carparkProperties.getNotify();
+    }
+
+    /**
+     * Queues a notification on the current transaction's connection; Postgres sends it on commit and
+     * drops it on rollback. Does nothing when notifications are disabled.
+     */
+    public void notifyChanged(long version, Collection<AvailabilityKey> changedLots) {
+        if (!properties.isEnabled() || changedLots.isEmpty()) return;
+        for (String payload : encode(nodeId, version, changedLots, MAX_PAYLOAD_BYTES)) {
+            send(payload);
+        }
+    }
+
+    /**
+     * Queues the import marker on the current transaction's connection, so that once the import commits
+     * the other nodes reload the car parks it added or changed. Does nothing when notifications are disabled.
+     */
+    public void notifyImported() {
+        if (!properties.isEnabled()) return;
+        send(nodeId + "|" + System.currentTimeMillis() + "|" + IMPORT_MARKER);
+    }
+
+    private void send(String payload) {
+        jdbcTemplate.query("SELECT pg_notify(?, ?)", ResultSet::next, properties.getChannel(), payload);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.isEnabled() || listener != null) return;
+        listener = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-listener");
+            thread.setDaemon(true);
+            return thread;
+        });
+        // listen() only returns when its connection fails, so the fixed delay is the reconnect pause
+        listener.scheduleWithFixedDelay(this::listen, 0, Math.max(1, properties.getReconnectSeconds()),
+                TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (listener != null) {
+            listener.shutdownNow();
+            listener = null;
+        }
+    }
+
+    private void listen() {
+        try (Connection connection = dataSource.getConnection()) {
+            connection.setAutoCommit(true);
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("LISTEN \"" + properties.getChannel() + "\"");
+            }
+            log.info("Listening for availability changes on {}", properties.getChannel());
+            // Car parks may have been imported while not listening, so this reloads the registry as well
+            publish(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.IMPORT));
+
+            PGConnection pgConnection = connection.unwrap(PGConnection.class);
+            while (!Thread.currentThread().isInterrupted()) {
+                PGNotification[] notifications = pgConnection.getNotifications(Math.max(1, properties.getPollMillis()));
+                if (notifications != null && notifications.length > 0) {
+                    dispatch(notifications);
+                }
+            }
+            try (Statement statement = connection.createStatement()) {
+                statement.execute("UNLISTEN *");
+            }
+        } catch (SQLException e) {
+            log.warn("Availability change listener disconnected, retrying in {}s: {}",
+                    properties.getReconnectSeconds(), e.getMessage());
+        }
+    }
+
+    private void dispatch(PGNotification[] notifications) {
+        Set<AvailabilityKey> changedLots = new HashSet<>();
+        boolean imported = false;
+        for (PGNotification notification : notifications) {
+            Change change = decode(notification.getParameter());
+            if (change == null) {
+                log.warn("Ignoring malformed availability notification: {}", notification.getParameter());
+            } else if (nodeId.equals(change.nodeId())) {
+                // applied locally already
+            } else if (change.isImport()) {
+                log.debug("Car parks imported at {} on node {}", change.version(), change.nodeId());
+                imported = true;
+            } else {
+                log.debug("Availability of {} car park lot types changed in snapshot {} on node {}",
+                        change.changedLots().size(), change.version(), change.nodeId());
+                changedLots.addAll(change.changedLots());
+            }
+        }
+        // A reload re-reads every car park, so it also covers the availability changes batched with it
+        if (imported) {
+            publish(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.IMPORT));
+        } else if (!changedLots.isEmpty()) {
+            publish(CarParkDataChangedEvent.availabilityChanged(changedLots));
+        }
+    }
+
+    private void publish(CarParkDataChangedEvent event) {
+        try {
+            eventPublisher.publishEvent(event);
+        } catch (RuntimeException e) {
+            log.warn("Could not apply availability change: {}", e.getMessage());
+        }
+    }
+
+    /** Splits the rows over as many payloads as needed to keep each under {@code maxBytes}. */
+    static List<String> encode(String nodeId, long version, Collection<AvailabilityKey> changedLots, int maxBytes) {
+        String header = nodeId + "|" + version + "|";
+        int headerBytes = header.getBytes(StandardCharsets.UTF_8).length;
+        List<String> payloads = new ArrayList<>();
+        StringBuilder payload = new StringBuilder(header);
+        int bytes = headerBytes;
+        for (AvailabilityKey key : changedLots) {
+            String entry = key.carParkId() + ":" + key.lotType();
+            int entryBytes = entry.getBytes(StandardCharsets.UTF_8).length;
+            boolean first = bytes == headerBytes;
+            if (!first && bytes + 1 + entryBytes > maxBytes) {
+                payloads.add(payload.toString());
+                payload.setLength(0);
+                payload.append(header);
+                bytes = headerBytes;
+                first = true;
+            }
+            if (!first) {
+                payload.append(',');
+                bytes++;
+            }
+            payload.append(entry);
+            bytes += entryBytes;
+        }
+        if (bytes > headerBytes) payloads.add(payload.toString());
+        return payloads;
+    }
+
+    /** Parses a payload written by {@link #encode} or {@link #notifyImported}; null when it is not one. */
+    static Change decode(String payload) {
+        if (payload == null) return null;
+        String[] parts = payload.split("\\|", 3);
+        if (parts.length != 3 || parts[0].isEmpty() || parts[2].isEmpty()) return null;
+        try {
+            long version = Long.parseLong(parts[1]);
+            if (IMPORT_MARKER.equals(parts[2])) return new Change(parts[0], version, null);
+            Set<AvailabilityKey> changedLots = new HashSet<>();
+            for (String entry : parts[2].split(",")) {
+                int separator = entry.lastIndexOf(':');
+                if (separator <= 0 || separator == entry.length() - 1) return null;
+                changedLots.add(new AvailabilityKey(entry.substring(0, separator), entry.substring(separator + 1)));
+            }
+            return new Change(parts[0], version, Set.copyOf(changedLots));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /** {@code changedLots} is null for an import, whose scope is every car park. */
+    record Change(String nodeId, long version, Set<AvailabilityKey> changedLots) {
+        boolean isImport() {
+            return changedLots == null;
+        }
+    }
+}
@@ -0,0 +1,151 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.repositories.AvailabilityHistoryRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records every availability snapshot into the partitioned history table when
+ * {@code carpark.history.enabled} is set. Partition creation, rollup and retention run on a
+ * background thread, never inside a refresh, so the live write path only ever appends rows.
+ */
+@Slf4j
+@Service
+public class AvailabilityHistoryService {
+    private final AvailabilityHistoryRepository historyRepository;
+    private final CarparkProperties.History properties;
+    private final Clock clock;
+
+    private ScheduledExecutorService scheduler;
+    private volatile boolean schemaReady;
+
+    public AvailabilityHistoryService(AvailabilityHistoryRepository historyRepository,
+                                      CarparkProperties carparkProperties) {
+        this(historyRepository, carparkProperties, Clock.systemUTC());
+    }
+
+    AvailabilityHistoryService(AvailabilityHistoryRepository historyRepository,
+                               CarparkProperties carparkProperties, Clock clock) {
+        this.historyRepository = historyRepository;
+        this.properties = carparkProperties.getHistory();
+        this.clock = clock;
+    }
+
+    public boolean isEnabled() {
+        return properties.isEnabled();
+    }
+
+    /**
+     * Appends one snapshot, observed at {@code recordedAt}, in its own statement; a no-op when history is
+     * disabled or its schema is not ready yet. History is best effort: a failed insert is logged and never
+     * reaches the caller.
+     */
+    public void record(String[] carParkIds, String[] lotTypes, int[] availableLots, Instant recordedAt) {
+        if (!properties.isEnabled() || !schemaReady || carParkIds.length == 0) return;
+        Instant[] timestamps = new Instant[carParkIds.length];
+        Arrays.fill(timestamps, recordedAt);
+        try {
+            historyRepository.insertAll(carParkIds, lotTypes, availableLots, timestamps);
+        } catch (Exception ex) {
+            log.warn("Could not record availability history: {}", ex.getMessage());
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.isEnabled() || scheduler != null || !ensureSchema()) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-history");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::maintainSafely, 0,
+                Math.max(1, properties.getMaintenanceIntervalMinutes()), TimeUnit.MINUTES);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Creates partitions for today and the next {@code partitions-ahead} days, merges every raw day
+     * older than {@code raw-retention-days} into the hourly rows while dropping its partition or
+     * deleting its default-partition rows, and deletes hourly rows older than {@code hourly-retention-days}.
+     * A day that fails is retried on the next run and does not hold up the others.
+     */
+    public void maintain() {
+        LocalDate today = LocalDate.now(clock.withZone(ZoneOffset.UTC));
+        List<LocalDate> existing = historyRepository.findPartitionDays();
+        Set<LocalDate> present = new HashSet<>(existing);
+        for (int i = 0; i <= properties.getPartitionsAhead(); i++) {
+            LocalDate day = today.plusDays(i);
+            if (present.contains(day)) continue;
+            try {
+                historyRepository.createPartition(day);
+            } catch (Exception ex) {
+                log.warn("Could not create availability history partition for {}: {}", day, ex.getMessage());
+            }
+        }
+
+        LocalDate rawCutoff = today.minusDays(properties.getRawRetentionDays());
+        for (LocalDate day : existing) {
+            if (!day.isBefore(rawCutoff)) break;
+            try {
+                int hours = historyRepository.rollupAndDropPartition(day);
+                log.info("Rolled up availability history for {} into {} hourly rows and dropped its partition",
+                        day, hours);
+            } catch (Exception ex) {
+                log.warn("Could not roll up availability history partition for {}: {}", day, ex.getMessage());
+            }
+        }
+        Instant rawCutoffAt = rawCutoff.atStartOfDay(ZoneOffset.UTC).toInstant();
+        for (LocalDate day : historyRepository.findDefaultDaysBefore(rawCutoffAt)) {
+            try {
+                historyRepository.rollupAndDeleteDefaultDay(day);
+            } catch (Exception ex) {
+                log.warn("Could not roll up default-partition availability history for {}: {}", day, ex.getMessage());
+            }
+        }
+
+        LocalDate hourlyCutoff = today.minusDays(properties.getHourlyRetentionDays());
+        historyRepository.deleteHourlyBefore(hourlyCutoff.atStartOfDay(ZoneOffset.UTC).toInstant());
+    }
+
+    boolean ensureSchema() {
+        try {
+            historyRepository.ensureSchema();
+            schemaReady = true;
+        } catch (Exception ex) {
+            log.warn("Could not prepare availability history schema: {}", ex.getMessage());
+        }
+        return schemaReady;
+    }
+
+    private void maintainSafely() {
+        try {
+            maintain();
+        } catch (Exception ex) {
+            log.warn("Availability history maintenance failed: {}", ex.getMessage());
+        }
+    }
+}
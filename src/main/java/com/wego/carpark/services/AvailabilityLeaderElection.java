@@ -0,0 +1,138 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Elects a single node to run availability refreshes when {@code carpark.leader.enabled} is set, using a
+ * Postgres session-level advisory lock held on a dedicated connection. Every third of
+ * {@code lease-seconds} the leader pings its connection and the other nodes retry
+ * {@code pg_try_advisory_lock}. The dedicated session runs with {@code idle_session_timeout} and TCP
+ * keepalives set to the lease, so if the leader dies, hangs or is partitioned, Postgres closes its session
+ * and frees the lock within about one lease, and another node takes over on its next attempt.
+ * <p>
+ * Leadership can still be lost in the middle of a refresh; the upsert only accepts newer readings, so an
+ * overlapping write from the old leader cannot roll data back.
+ */
+@Slf4j
+@Component
+public class AvailabilityLeaderElection {
+    private final DataSource dataSource;
+    private final CarparkProperties.Leader properties;
+
+    private ScheduledExecutorService scheduler;
+    private Connection connection;
+    private volatile boolean leader;
+
+    public AvailabilityLeaderElection(DataSource dataSource, CarparkProperties carparkProperties) {
+        this.dataSource = dataSource;
+        this.properties = carparkProperties.getLeader();
+    }
+
+    /** Whether this node may refresh availability; always true when election is disabled. */
+    public boolean isLeader() {
+        return !properties.isEnabled() || leader;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.isEnabled() || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-leader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long heartbeatMillis = Math.max(1, TimeUnit.SECONDS.toMillis(properties.getLeaseSeconds()) / 3);
+        scheduler.scheduleWithFixedDelay(this::heartbeat, 0, heartbeatMillis, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        if (leader) log.info("Releasing availability refresh leadership");
+        leader = false;
+        release();
+    }
+
+    /** Keeps the lock alive while leading, otherwise tries to take it. */
+    synchronized void heartbeat() {
+        try {
+            if (leader) {
+                if (!connection.isValid(Math.max(1, properties.getLeaseSeconds() / 3))) {
+                    throw new SQLException("Leader connection is no longer valid");
+                }
+                return;
+            }
+            if (connection == null) {
+                connection = open();
+            }
+            leader = tryLock(connection);
+            if (leader) log.info("Acquired availability refresh leadership");
+        } catch (SQLException e) {
+            if (leader) log.warn("Lost availability refresh leadership: {}", e.getMessage());
+            else log.debug("Leader election attempt failed: {}", e.getMessage());
+            leader = false;
+            release();
+        }
+    }
+
+    private Connection open() throws SQLException {
+        Connection opened = dataSource.getConnection();
+        opened.setAutoCommit(true);
+        int leaseSeconds = Math.max(1, properties.getLeaseSeconds());
+        try (Statement statement = opened.createStatement()) {
+            statement.execute("SET tcp_keepalives_idle = " + Math.max(1, leaseSeconds / 3));
+            statement.execute("SET tcp_keepalives_interval = " + Math.max(1, leaseSeconds / 6));
+            statement.execute("SET tcp_keepalives_count = 2");
+            // Postgres 14+: closes the session of a leader that stopped heartbeating
+            statement.execute("SET idle_session_timeout = '" + leaseSeconds + "s'");
+        } catch (SQLException e) {
+            log.debug("Could not apply leader session timeouts, failover relies on connection loss: {}",
+                    e.getMessage());
+        }
+        return opened;
+    }
+
+    private boolean tryLock(Connection lockConnection) throws SQLException {
+        try (PreparedStatement statement = lockConnection.prepareStatement("SELECT pg_try_advisory_lock(?)")) {
+            statement.setLong(1, properties.getLockKey());
+            try (ResultSet result = statement.executeQuery()) {
+                return result.next() && result.getBoolean(1);
+            }
+        }
+    }
+
+    /** Frees the lock and session settings before the connection goes back to the pool. */
+    private void release() {
+        if (connection == null) return;
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("SELECT pg_advisory_unlock_all()");
+            statement.execute("RESET ALL");
+        } catch (SQLException e) {
+            log.debug("Could not reset leader connection: {}", e.getMessage());
+        }
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            log.debug("Could not close leader connection: {}", e.getMessage());
+        }
+        connection = null;
+    }
+}
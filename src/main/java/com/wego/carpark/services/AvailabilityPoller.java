@@ -0,0 +1,197 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Runs {@link CarParkAvailabilityUpdateService#updateOnce()} on its own schedule when
+ * {@code carpark.poller.enabled} is set, and guards every refresh (scheduled or manual) so that only
+ * one runs at a time. Each run schedules the next one:
+ * <ul>
+ *     <li>after a failure the delay doubles per consecutive failure, up to {@code max-backoff-seconds};</li>
+ *     <li>when the upstream timestamp advanced, the delay follows the observed upstream period,
+ *     clamped to {@code [min-interval-seconds, max-interval-seconds]};</li>
+ *     <li>when it did not advance, the delay grows by half, up to {@code max-interval-seconds}.</li>
+ * </ul>
+ * The gap between timestamps seen on successive polls can never be shorter than the delay itself, so it
+ * cannot tell when upstream has sped up. After several polls in a row that each saw a new timestamp, the
+ * poller probes: it polls at {@code min-interval-seconds} until the next timestamp appears, which measures
+ * the upstream period directly, and adopts it when it is shorter than the delay. Probes that confirm the
+ * delay are spaced out further and further.
+ * Every delay gets +/- {@code jitter-ratio} of random jitter so that replicas do not poll in lockstep.
+ * With leader election enabled only the elected node refreshes; the others keep polling their own
+ * schedule so that one of them can take over without delay.
+ */
+@Slf4j
+@Component
+public class AvailabilityPoller {
+    // Advancing polls in a row before the first probe, and the most that probes are ever spaced out to
+    private static final int PROBE_AFTER = 3;
+    private static final int MAX_PROBE_AFTER = 48;
+
+    private final CarParkAvailabilityUpdateService updateService;
+    private final AvailabilityLeaderElection leaderElection;
+    private final CarparkProperties.Poller properties;
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    private ScheduledExecutorService scheduler;
+    private Instant lastTimestamp;
+    private long delayMillis;
+    private int consecutiveFailures;
+    private int consecutiveAdvances;
+    private int probeAfter = PROBE_AFTER;
+    private boolean probing;
+    private int probePolls;
+
+    public AvailabilityPoller(CarParkAvailabilityUpdateService updateService,
+                              AvailabilityLeaderElection leaderElection,
+                              CarparkProperties carparkProperties) {
+        this.updateService = updateService;
+        this.leaderElection = leaderElection;
+        this.properties = carparkProperties.getPoller();
+        this.delayMillis = TimeUnit.SECONDS.toMillis(properties.getIntervalSeconds());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (!properties.isEnabled() || scheduler != null) return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "availability-poller");
+            thread.setDaemon(true);
+            return thread;
+        });
+        log.info("Availability poller started, first refresh in {} s", properties.getIntervalSeconds());
+        schedule(jitter(delayMillis));
+    }
+
+    @PreDestroy
+    public synchronized void stop() {
+        if (scheduler != null) {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    /**
+     * Runs a refresh now unless one is already in progress, or another node holds the refresh leadership,
+     * in which case nothing is done and the returned result has status {@code already-running} or
+     * {@code not-leader}.
+     */
+    public CarParkAvailabilityUpdateService.Result refreshNow() {
+        return guarded(updateService::updateOnce);
+    }
+
+    /** Same as {@link #refreshNow()}, reporting the refresh's progress. */
+    public CarParkAvailabilityUpdateService.Result refreshNow(JobProgress progress) {
+        return guarded(() -> updateService.updateOnce(progress));
+    }
+
+    private CarParkAvailabilityUpdateService.Result guarded(Supplier<CarParkAvailabilityUpdateService.Result> refresh) {
+        if (!leaderElection.isLeader()) {
+            return new CarParkAvailabilityUpdateService.Result(0, 0, 0, 0, "not-leader", null);
+        }
+        if (!running.compareAndSet(false, true)) {
+            return new CarParkAvailabilityUpdateService.Result(0, 0, 0, 0, "already-running", null);
+        }
+        try {
+            return refresh.get();
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private void poll() {
+        try {
+            CarParkAvailabilityUpdateService.Result result = refreshNow();
+            if (!"already-running".equals(result.status()) && !"not-leader".equals(result.status())) {
+                onSuccess(result.timestamp());
+            }
+        } catch (RuntimeException e) {
+            onFailure(e);
+        } finally {
+            schedule(jitter(delayMillis()));
+        }
+    }
+
+    synchronized void onSuccess(Instant timestamp) {
+        if (consecutiveFailures > 0) {
+            consecutiveFailures = 0;
+            delayMillis = TimeUnit.SECONDS.toMillis(properties.getIntervalSeconds());
+        }
+        long min = TimeUnit.SECONDS.toMillis(properties.getMinIntervalSeconds());
+        long max = TimeUnit.SECONDS.toMillis(properties.getMaxIntervalSeconds());
+        boolean observed = timestamp != null && lastTimestamp != null;
+        boolean advanced = observed && timestamp.isAfter(lastTimestamp);
+        if (probing) {
+            if (advanced) {
+                // Polled every min interval since the previous timestamp, so the gap is one upstream period
+                long upstreamPeriod = Duration.between(lastTimestamp, timestamp).toMillis();
+                probing = false;
+                if (upstreamPeriod < delayMillis * 9 / 10) {
+                    log.debug("Upstream publishes every ~{} s, polling faster", upstreamPeriod / 1000);
+                    delayMillis = Math.max(min, Math.min(max, upstreamPeriod));
+                    probeAfter = PROBE_AFTER;
+                } else {
+                    probeAfter = Math.min(MAX_PROBE_AFTER, probeAfter * 2);
+                }
+            } else if (++probePolls * min >= delayMillis) {
+                // Nothing new within the current delay: upstream is not faster than it
+                probing = false;
+                probeAfter = Math.min(MAX_PROBE_AFTER, probeAfter * 2);
+            }
+        } else if (advanced) {
+            long upstreamPeriod = Duration.between(lastTimestamp, timestamp).toMillis();
+            delayMillis = Math.max(min, Math.min(max, upstreamPeriod));
+            if (++consecutiveAdvances >= probeAfter) {
+                consecutiveAdvances = 0;
+                probePolls = 0;
+                probing = true;
+            }
+        } else if (observed) {
+            consecutiveAdvances = 0;
+            delayMillis = Math.max(min, Math.min(max, delayMillis + delayMillis / 2));
+        }
+        if (timestamp != null) lastTimestamp = timestamp;
+    }
+
+    synchronized void onFailure(RuntimeException e) {
+        consecutiveFailures++;
+        consecutiveAdvances = 0;
+        probing = false;
+        long base = TimeUnit.SECONDS.toMillis(properties.getIntervalSeconds());
+        long backoff = base << Math.min(consecutiveFailures, 20);
+        delayMillis = Math.min(TimeUnit.SECONDS.toMillis(properties.getMaxBackoffSeconds()), backoff);
+        log.warn("Availability refresh failed ({} in a row), retrying in ~{} s: {}",
+                consecutiveFailures, delayMillis / 1000, e.getMessage());
+    }
+
+    /** Delay before the next poll: the minimum interval while probing, the adapted delay otherwise. */
+    synchronized long delayMillis() {
+        return probing ? TimeUnit.SECONDS.toMillis(properties.getMinIntervalSeconds()) : delayMillis;
+    }
+
+    private long jitter(long millis) {
+        double ratio = Math.max(0, Math.min(1, properties.getJitterRatio()));
+        if (ratio == 0) return millis;
+        return Math.round(millis * (1 + ThreadLocalRandom.current().nextDouble(-ratio, ratio)));
+    }
+
+    private synchronized void schedule(long millis) {
+        if (scheduler != null && !scheduler.isShutdown()) {
+            scheduler.schedule(this::poll, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+}
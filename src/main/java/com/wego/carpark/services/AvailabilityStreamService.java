@@ -0,0 +1,158 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.dto.requests.AvailabilityStreamRequest;
+import com.wego.carpark.dto.responses.AvailabilityDelta;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.AvailabilityKey;
+import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.repositories.ChangedAvailability;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Fans availability changes out to streaming subscribers. After each refresh the changed (car park, lot
+ * type) rows are read once and emitted to a multicast sink; every subscriber filters them by lot type and by
+ * bounding box or ids, and keeps at most {@code carpark.stream.buffer-size} pending updates. Emitting never
+ * waits on a subscriber: when one falls behind, its oldest update is dropped and counted in
+ * {@code carpark.stream.dropped}. Changes whose scope is unknown (imports, listener reconnects) are sent as
+ * a resync, telling clients to reload from {@code /nearest}.
+ */
+@Service
+public class AvailabilityStreamService {
+    private final CarParkAvailabilityRepository availabilityRepository;
+    private final CarparkProperties.Stream properties;
+    private final Sinks.Many<Change> sink = Sinks.many().multicast().directBestEffort();
+    private final AtomicInteger subscribers = new AtomicInteger();
+    private final Counter droppedUpdates;
+
+    public AvailabilityStreamService(CarParkAvailabilityRepository availabilityRepository,
+                                     CarparkProperties carparkProperties, MeterRegistry meterRegistry) {
+        this.availabilityRepository = availabilityRepository;
+        this.properties = carparkProperties.getStream();
+        this.droppedUpdates = Counter.builder("carpark.stream.dropped")
+                .description("Availability updates dropped for subscribers that fell behind")
+                .register(meterRegistry);
+        Gauge.builder("carpark.stream.subscribers", subscribers, AtomicInteger::get)
+                .description("Open availability streams")
+                .register(meterRegistry);
+    }
+
+    // Runs after the index listener, so a client reacting to an update already sees it in /nearest
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarParkDataChanged(CarParkDataChangedEvent event) {
+        if (sink.currentSubscriberCount() == 0) return;
+        Change change = event.source() == CarParkDataChangedEvent.Source.AVAILABILITY && event.isIncremental()
+                ? new Change(false, changedRows(event))
+                : new Change(true, List.of());
+        // The sink rejects concurrent emitters, and changes arrive from both local refreshes and the listener
+        synchronized (sink) {
+            sink.tryEmitNext(change);
+        }
+    }
+
+    // The query returns every lot type of the changed car parks; only the rows that changed are sent
+    private List<ChangedAvailability> changedRows(CarParkDataChangedEvent event) {
+        List<ChangedAvailability> rows = availabilityRepository.findChangedAvailability(event.carParkIds());
+        Set<AvailabilityKey> changedLots = event.changedLots();
+        if (changedLots == null) return rows;
+        return rows.stream()
+                .filter(row -> changedLots.contains(new AvailabilityKey(row.id(), row.lotType())))
+                .toList();
+    }
+
+    /**
+     * Opens a stream of updates matching the request, or empty when {@code carpark.stream.max-subscribers}
+     * streams are already open. The slot is taken here, so concurrent requests cannot overshoot the limit,
+     * and is given back once the returned stream terminates or is cancelled.
+     */
+    public Optional<Flux<Update>> subscribe(AvailabilityStreamRequest request) {
+        Filter filter = filter(request);
+        if (subscribers.incrementAndGet() > properties.getMaxSubscribers()) {
+            subscribers.decrementAndGet();
+            return Optional.empty();
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return Optional.of(sink.asFlux()
+                .<Update>handle((change, next) -> {
+                    Update update = filter.apply(change);
+                    if (update != null) next.next(update);
+                })
+                .onBackpressureBuffer(Math.max(1, properties.getBufferSize()), dropped -> droppedUpdates.increment(),
+                        BufferOverflowStrategy.DROP_OLDEST)
+                .doFinally(signal -> {
+                    if (released.compareAndSet(false, true)) subscribers.decrementAndGet();
+                }));
+    }
+
+    private static Filter filter(AvailabilityStreamRequest request) {
+        boolean anyBound = request.getMinLatitude() != null || request.getMaxLatitude() != null
+                || request.getMinLongitude() != null || request.getMaxLongitude() != null;
+        boolean allBounds = request.getMinLatitude() != null && request.getMaxLatitude() != null
+                && request.getMinLongitude() != null && request.getMaxLongitude() != null;
+        if (anyBound && !allBounds) {
+            throw new IllegalArgumentException("A bounding box needs all of minLatitude, maxLatitude, "
+                    + "minLongitude and maxLongitude");
+        }
+        if (allBounds && (request.getMinLatitude() > request.getMaxLatitude()
+                || request.getMinLongitude() > request.getMaxLongitude())) {
+            throw new IllegalArgumentException("Bounding box minimums must not exceed its maximums");
+        }
+        Set<String> ids = request.getIds() == null || request.getIds().isEmpty()
+                ? null : Set.copyOf(request.getIds());
+        return allBounds
+                ? new Filter(request.getLotType(), request.getMinLatitude(), request.getMaxLatitude(),
+                        request.getMinLongitude(), request.getMaxLongitude(), ids)
+                : new Filter(request.getLotType(), -90, 90, -180, 180, ids);
+    }
+
+    /** One batch of deltas for a subscriber, or a resync when {@code resync} is set. */
+    public record Update(boolean resync, List<AvailabilityDelta> deltas) {}
+
+    private record Change(boolean resync, List<ChangedAvailability> rows) {}
+
+    private record Filter(String lotType, double minLatitude, double maxLatitude, double minLongitude,
+                          double maxLongitude, Set<String> ids) {
+        // Null when nothing in the change concerns this subscriber
+        Update apply(Change change) {
+            if (change.resync()) return new Update(true, List.of());
+            List<AvailabilityDelta> deltas = new ArrayList<>();
+            for (ChangedAvailability row : change.rows()) {
+                if (matches(row)) {
+                    deltas.add(AvailabilityDelta.builder()
+                            .id(row.id())
+                            .availableLots(row.availableLots())
+                            .lastUpdated(row.lastUpdated())
+                            .build());
+                }
+            }
+            return deltas.isEmpty() ? null : new Update(false, deltas);
+        }
+
+        private boolean matches(ChangedAvailability row) {
+            return lotType.equals(row.lotType())
+                    && (ids == null || ids.contains(row.id()))
+                    && row.latitude() >= minLatitude && row.latitude() <= maxLatitude
+                    && row.longitude() >= minLongitude && row.longitude() <= maxLongitude;
+        }
+    }
+}
@@ -1,109 +1,394 @@
 package com.wego.carpark.services;
 
 import com.wego.carpark.config.CarparkProperties;
-import com.wego.carpark.dto.requests.AvailabilityApiDTO;
-import com.wego.carpark.entities.CarPark;
+import com.wego.carpark.dto.requests.AvailabilityRecord;
+import com.wego.carpark.entities.CarParkAvailability;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.AvailabilityKey;
 import com.wego.carpark.repositories.CarParkAvailabilityRepository;
 import com.wego.carpark.repositories.CarParkRepository;
-import jakarta.transaction.Transactional;
+import com.wego.carpark.utils.AvailabilityJsonParser;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.scheduler.Schedulers;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
 import java.time.Instant;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
+/**
+ * Refreshes availability from the upstream API as a streamed pipeline:
+ * <ol>
+ *     <li><b>fetch</b> - the response body is read as it arrives;</li>
+ *     <li><b>parse</b> - {@link AvailabilityJsonParser} turns bytes into records incrementally;</li>
+ *     <li><b>diff</b> - records are validated against {@link CarParkRegistry} and de-duplicated;</li>
+ *     <li><b>write</b> - accepted rows are upserted in chunks of {@code carpark.ingest.chunk-size}, each in
+ *     its own short transaction. Each row is stamped with its car park's own {@code update_datetime}
+ *     (falling back to the snapshot time). The upsert only writes rows whose counts changed and whose
+ *     reading is newer, and reports exactly those as written.</li>
+ * </ol>
+ * At most {@code carpark.ingest.buffer-size} parsed records wait for the writer. When the database is
+ * slow the queue fills, demand stops, and the HTTP read pauses instead of piling up data or holding a
+ * transaction open across the whole refresh. Each stage publishes its own meters
+ * ({@code carpark.availability.fetch.bytes}, {@code .parse.records}, {@code .diff.records}, {@code .write}).
+ * <p>
+ * Fetches are conditional: the {@code ETag} and {@code Last-Modified} of the last ingested response are
+ * sent back, and a 304 ends the refresh without a body. When upstream ignores them, the refresh still
+ * stops at the first record if the snapshot {@code timestamp} equals the last ingested one, cancelling
+ * the download before anything is written.
+ * <p>
+ * Only the car parks whose rows actually changed are passed on, both to the local
+ * {@link CarParkDataChangedEvent} and, through {@link AvailabilityChangeNotifier}, to the other replicas.
+ */
+@Slf4j
 @Service
 public class CarParkAvailabilityUpdateService {
+    private static final ZoneId UPSTREAM_ZONE = ZoneId.of("Asia/Singapore");
+
     private final WebClient webClient;
     private final CarparkProperties carparkProperties;
     private final CarParkRepository carParkRepository;
+    private final CarParkRegistry carParkRegistry;
     private final CarParkAvailabilityRepository availabilityRepository;
+    private final AvailabilityHistoryService historyService;
+    private final AvailabilityChangeNotifier changeNotifier;
+    private final ApplicationEventPublisher eventPublisher;
+    private final TransactionTemplate transactionTemplate;
+    private final Counter fetchedBytes;
+    private final Counter parsedRecords;
+    private final Counter acceptedRecords;
+    private final Counter duplicateRecords;
+    private final Counter unknownRecords;
+    private final Counter invalidRecords;
+    private final Timer writeTimer;
+    private final Timer refreshTimer;
+
+    // Validators of the last successfully ingested response
+    private volatile String lastEtag;
+    private volatile String lastModified;
+    private volatile Instant lastIngestedTimestamp;
 
     public CarParkAvailabilityUpdateService(
             WebClient webClient,
             CarparkProperties carparkProperties,
             CarParkRepository carParkRepository,
-            CarParkAvailabilityRepository availabilityRepository) {
+            CarParkRegistry carParkRegistry,
+            CarParkAvailabilityRepository availabilityRepository,
+            AvailabilityHistoryService historyService,
+            AvailabilityChangeNotifier changeNotifier,
+            ApplicationEventPublisher eventPublisher,
+            PlatformTransactionManager transactionManager,
+            MeterRegistry meterRegistry) {
         this.webClient = webClient;
         this.carparkProperties = carparkProperties;
         this.carParkRepository = carParkRepository;
+        this.carParkRegistry = carParkRegistry;
         this.availabilityRepository = availabilityRepository;
+        this.historyService = historyService;
+        this.changeNotifier = changeNotifier;
+        this.eventPublisher = eventPublisher;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.fetchedBytes = Counter.builder("carpark.availability.fetch.bytes")
+                .description("Response bytes read from the availability API")
+                .register(meterRegistry);
+        this.parsedRecords = Counter.builder("carpark.availability.parse.records")
+                .description("Availability records parsed from the response")
+                .register(meterRegistry);
+        this.acceptedRecords = diffCounter(meterRegistry, "accepted");
+        this.duplicateRecords = diffCounter(meterRegistry, "duplicate");
+        this.unknownRecords = diffCounter(meterRegistry, "unknown-carpark");
+        this.invalidRecords = diffCounter(meterRegistry, "invalid");
+        this.writeTimer = Timer.builder("carpark.availability.write")
+                .description("Time spent writing one chunk of availability rows")
+                .register(meterRegistry);
+        this.refreshTimer = Timer.builder("carpark.availability.refresh")
+                .description("Time spent on one availability refresh, fetch to last write")
+                .register(meterRegistry);
     }
 
-    private static int parseIntSafe(String s) {
-        try {
-            return Integer.parseInt(s);
-        } catch (Exception e) {
-            return -1;
-        }
+    private static Counter diffCounter(MeterRegistry meterRegistry, String outcome) {
+        return Counter.builder("carpark.availability.diff.records")
+                .description("Parsed availability records by validation outcome")
+                .tag("outcome", outcome)
+                .register(meterRegistry);
     }
 
-    @Transactional
     public Result updateOnce() {
-        AvailabilityApiDTO dto = webClient.get()
-                .uri(carparkProperties.getAvailabilityUrl())
-                .retrieve()
-                .bodyToMono(AvailabilityApiDTO.class)
+        return updateOnce(new JobProgress());
+    }
+
+    /**
+     * Same as {@link #updateOnce()}, reporting records parsed (read), accepted by the diff stage (converted)
+     * and changed by the upsert (written) as they go.
+     */
+    public Result updateOnce(JobProgress progress) {
+        CarparkProperties.Ingest ingestProperties = carparkProperties.getIngest();
+        Ingest ingest = new Ingest(progress);
+        Timer.Sample refresh = Timer.start();
+
+        Flux.defer(() -> {
+                    ReadPosition position = new ReadPosition();
+                    return fetch(ingest)
+                            .doOnNext(buffer -> ingest.bytesRead(position, buffer.readableByteCount()))
+                            .transform(AvailabilityJsonParser::decode)
+                            .doOnNext(record -> ingest.recordRead(position));
+                })
+                // A retry replays the document from the start; rows already seen are dropped by the diff stage
+                // and bytes and records already counted are not counted again
                 .retryWhen(Retry.backoff(3, Duration.ofMillis(300)))
+                // Cancels the download as soon as the snapshot turns out to be the one already ingested
+                .takeWhile(ingest::isNewSnapshot)
+                // Bounded hand-off from the HTTP thread to a thread that may block on JDBC
+                .publishOn(Schedulers.boundedElastic(), Math.max(1, ingestProperties.getBufferSize()))
+                .filter(ingest::accept)
+                .buffer(Math.max(1, ingestProperties.getChunkSize()))
+                .doOnNext(ingest::write)
+                .then()
                 .block();
 
-        if (dto == null || dto.getItems() == null || dto.getItems().isEmpty()) {
-            return new Result(0, 0, 0, "empty-payload");
+        refresh.stop(refreshTimer);
+        if (ingest.notModified) {
+            return new Result(0, 0, 0, 0, "not-modified", lastIngestedTimestamp);
+        }
+        if (ingest.unchanged) {
+            rememberValidators(ingest);
+            return new Result(0, 0, 0, 0, "unchanged-snapshot", ingest.timestamp);
+        }
+        if (ingest.records == 0) {
+            return new Result(0, 0, 0, 0, "empty-payload", null);
         }
+        rememberValidators(ingest);
+        log.info("Wrote availability for {} car park lot types ({} unchanged) in {} chunks",
+                ingest.written, ingest.rows - ingest.written, ingest.chunks);
 
-        var item = dto.getItems().get(0); // latest snapshot
-        Instant ts = parseInstantSafe(item.getTimestamp()); // ok if null
+        // Nothing to re-index when every row was unchanged
+        if (!ingest.changedLots.isEmpty()) {
+            eventPublisher.publishEvent(CarParkDataChangedEvent.availabilityChanged(ingest.changedLots));
+        }
+        return new Result(ingest.written, ingest.rows - ingest.written, ingest.skippedUnknownCarpark, ingest.errors,
+                "ok", ingest.timestamp);
+    }
 
-        AtomicInteger processed = new AtomicInteger();
-        AtomicInteger skippedUnknownCarpark = new AtomicInteger();
-        AtomicInteger errors = new AtomicInteger();
+    private Flux<DataBuffer> fetch(Ingest ingest) {
+        return webClient.get()
+                .uri(carparkProperties.getAvailabilityUrl())
+                .headers(headers -> {
+                    if (lastEtag != null) headers.set(HttpHeaders.IF_NONE_MATCH, lastEtag);
+                    if (lastModified != null) headers.set(HttpHeaders.IF_MODIFIED_SINCE, lastModified);
+                })
+                .exchangeToFlux(response -> {
+                    if (response.statusCode().value() == HttpStatus.NOT_MODIFIED.value()) {
+                        ingest.notModified = true;
+                        return response.releaseBody().thenMany(Flux.empty());
+                    }
+                    if (response.statusCode().isError()) {
+                        return response.createException().flatMapMany(Flux::error);
+                    }
+                    HttpHeaders headers = response.headers().asHttpHeaders();
+                    ingest.etag = headers.getFirst(HttpHeaders.ETAG);
+                    ingest.lastModified = headers.getFirst(HttpHeaders.LAST_MODIFIED);
+                    return response.bodyToFlux(DataBuffer.class);
+                });
+    }
 
-        item.getCarparkData().forEach(cp -> {
-            String id = cp.getCarparkNumber();
-            if (id == null || id.isBlank()) return;
-            var info = (cp.getCarparkInfo() == null || cp.getCarparkInfo().isEmpty())
-                    ? null
-                    : cp.getCarparkInfo().get(0);
+    private void rememberValidators(Ingest ingest) {
+        lastEtag = ingest.etag;
+        lastModified = ingest.lastModified;
+        if (ingest.timestamp != null) lastIngestedTimestamp = ingest.timestamp;
+    }
 
-            int available = parseIntSafe(info != null ? info.getLotsAvailable() : null);
-            int totalLots = parseIntSafe(info != null ? info.getTotalLots() : null);
+    /**
+     * Parses a car park's own {@code update_datetime}. Upstream sends Singapore local time without an
+     * offset ("2025-08-20T09:59:12"); values that carry an offset are honoured as-is. Null if unparseable.
+     */
+    static Instant parseUpdateDatetime(String s) {
+        if (s == null || s.isBlank()) return null;
+        try {
+            return LocalDateTime.parse(s).atZone(UPSTREAM_ZONE).toInstant();
+        } catch (DateTimeParseException e) {
+            try {
+                return OffsetDateTime.parse(s).toInstant();
+            } catch (DateTimeParseException ignored) {
+                return null;
+            }
+        }
+    }
 
-            if (!carParkRepository.existsById(id)) {
-                skippedUnknownCarpark.incrementAndGet();
-                return;
+    private static Instant parseInstantSafe(String s) {
+        try { return s == null ? null : Instant.parse(s); } catch (Exception e) { return null; }
+    }
+
+    /**
+     * State of one refresh. Every stage runs on a single thread at a time and hands over through
+     * {@code publishOn}, so the fields need no synchronisation; {@code block()} makes them visible to the
+     * caller afterwards.
+     */
+    private final class Ingest {
+        private final JobProgress progress;
+        // Rows already accepted, so a row listed twice (or replayed by a retry) is written once
+        private final Set<AvailabilityKey> seen = new HashSet<>();
+        // Rows written, plus the car lots of car parks whose total was filled in, for the change event
+        private final Set<AvailabilityKey> changedLots = new HashSet<>();
+        private String etag;
+        private String lastModified;
+        private boolean notModified;
+        private boolean checked;
+        private boolean unchanged;
+        private int records;
+        private Instant timestamp;
+        private Instant lastUpdated;
+        private int rows;
+        private int written;
+        private int chunks;
+        private int skippedUnknownCarpark;
+        private int errors;
+        // Furthest any attempt has read, so a retry only counts what lies beyond it
+        private long furthestBytes;
+        private long furthestRecords;
+
+        Ingest(JobProgress progress) {
+            this.progress = progress;
+        }
+
+        void bytesRead(ReadPosition position, int count) {
+            position.bytes += count;
+            if (position.bytes > furthestBytes) {
+                fetchedBytes.increment(position.bytes - furthestBytes);
+                furthestBytes = position.bytes;
+            }
+        }
+
+        void recordRead(ReadPosition position) {
+            if (++position.records > furthestRecords) {
+                furthestRecords = position.records;
+                parsedRecords.increment();
+                progress.rowRead();
             }
-            if (available < 0) {
-                errors.incrementAndGet();
-                return;
+        }
+
+        boolean isNewSnapshot(AvailabilityRecord record) {
+            if (!checked) {
+                checked = true;
+                timestamp = parseInstantSafe(record.timestamp()); // latest snapshot, ok if null
+                lastUpdated = timestamp != null ? timestamp : Instant.now();
+                unchanged = timestamp != null && timestamp.equals(lastIngestedTimestamp);
             }
+            return !unchanged;
+        }
 
-            try {
-                // Update availability
-                availabilityRepository.upsert(id, available, ts != null ? ts : Instant.now());
-
-                // Update total lots if we have valid data
-                if (totalLots > 0) {
-                    CarPark carPark = carParkRepository.findById(id).orElse(null);
-                    if (carPark != null && carPark.getTotalLots() == 0) {
-                        carPark.setTotalLots(totalLots);
-                        carParkRepository.save(carPark);
-                    }
+        boolean accept(AvailabilityRecord record) {
+            records++;
+            String id = record.carParkNumber();
+            if (id == null || id.isBlank()) {
+                invalidRecords.increment();
+                return false;
+            }
+            if (!carParkRegistry.isKnown(id)) {
+                skippedUnknownCarpark++;
+                unknownRecords.increment();
+                return false;
+            }
+            if (record.availableLots() < 0 || record.lotType() == null || record.lotType().isBlank()) {
+                errors++;
+                invalidRecords.increment();
+                return false;
+            }
+            if (!seen.add(new AvailabilityKey(id, record.lotType()))) {
+                duplicateRecords.increment();
+                return false;
+            }
+            acceptedRecords.increment();
+            progress.rowConverted();
+            return true;
+        }
+
+        void write(List<AvailabilityRecord> chunk) {
+            int n = chunk.size();
+            String[] ids = new String[n];
+            String[] lotTypes = new String[n];
+            int[] totalLots = new int[n];
+            int[] availableLots = new int[n];
+            Instant[] lastUpdatedAt = new Instant[n];
+            Map<String, Integer> totalLotsById = new LinkedHashMap<>();
+            for (int i = 0; i < n; i++) {
+                AvailabilityRecord record = chunk.get(i);
+                ids[i] = record.carParkNumber();
+                lotTypes[i] = record.lotType();
+                totalLots[i] = Math.max(0, record.totalLots());
+                availableLots[i] = record.availableLots();
+                Instant updatedAt = parseUpdateDatetime(record.updateDatetime());
+                lastUpdatedAt[i] = updatedAt != null ? updatedAt : lastUpdated;
+                // Fill in total lots for car parks imported without them, from their car lots
+                if (CarParkAvailability.CAR.equals(record.lotType()) && record.totalLots() > 0
+                        && carParkRegistry.hasZeroTotalLots(ids[i])) {
+                    totalLotsById.put(ids[i], record.totalLots());
                 }
-                
-                processed.incrementAndGet();
-            } catch (Exception ex) {
-                errors.incrementAndGet();
             }
-        });
 
-        return new Result(processed.get(), skippedUnknownCarpark.get(), errors.get(), "ok");
+            long version = lastUpdated.toEpochMilli();
+            List<AvailabilityKey> changed = writeTimer.record(() -> transactionTemplate.execute(status -> {
+                if (!totalLotsById.isEmpty()) {
+                    carParkRepository.fillZeroTotalLots(totalLotsById.keySet().toArray(String[]::new),
+                            totalLotsById.values().stream().mapToInt(Integer::intValue).toArray());
+                }
+                List<AvailabilityKey> upserted =
+                        availabilityRepository.upsertAll(ids, lotTypes, totalLots, availableLots, lastUpdatedAt);
+                Set<AvailabilityKey> chunkChanged = new HashSet<>(upserted);
+                totalLotsById.keySet().forEach(id ->
+                        chunkChanged.add(new AvailabilityKey(id, CarParkAvailability.CAR)));
+                changeNotifier.notifyChanged(version, chunkChanged);
+                return upserted;
+            }));
+            // After the commit, so a history failure or partition lock wait never rolls back or stalls the
+            // live upsert. Every observed value is kept, changed or not, so hourly averages are not biased.
+            // Stamped with the snapshot time: a car park that has not reported again is one sample per poll
+            // at the time it was seen, not a pile of samples at its old update_datetime.
+            historyService.record(ids, lotTypes, availableLots, lastUpdated);
+            if (!totalLotsById.isEmpty()) {
+                carParkRegistry.totalLotsFilled(totalLotsById.keySet());
+                totalLotsById.keySet().forEach(id ->
+                        changedLots.add(new AvailabilityKey(id, CarParkAvailability.CAR)));
+            }
+            if (changed != null) {
+                changedLots.addAll(changed);
+                written += changed.size();
+                progress.rowsWritten(changed.size());
+            }
+            rows += n;
+            chunks++;
+        }
     }
 
-    private static Instant parseInstantSafe(String s) {
-        try { return s == null ? null : Instant.parse(s); } catch (Exception e) { return null; }
+    /** How far one fetch attempt has read into the response. */
+    private static final class ReadPosition {
+        private long bytes;
+        private long records;
     }
 
-    public record Result(int processed, int skippedUnknownCarpark, int errors, String status) {}
+    /**
+     * {@code processed} and {@code unchanged} count (car park, lot type) rows. {@code timestamp} is the
+     * upstream snapshot time, null when the payload had none.
+     */
+    public record Result(int processed, int unchanged, int skippedUnknownCarpark, int errors, String status,
+                         Instant timestamp) {}
 }
@@ -1,12 +1,14 @@
 package com.wego.carpark.services;
 
 import com.wego.carpark.entities.CarPark;
+import com.wego.carpark.events.CarParkDataChangedEvent;
 import com.wego.carpark.repositories.CarParkRepository;
 import com.wego.carpark.utils.CoordinateConverter;
 import jakarta.transaction.Transactional;
 import org.apache.commons.csv.CSVFormat;
 import org.apache.commons.csv.CSVParser;
 import org.apache.commons.csv.CSVRecord;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.stereotype.Service;
 
@@ -18,13 +20,24 @@ import java.util.List;
 @Service
 public class CarParkImportService {
     private final CarParkRepository carParkRepository;
+    private final ApplicationEventPublisher eventPublisher;
+    private final AvailabilityChangeNotifier changeNotifier;
 
-    public CarParkImportService(CarParkRepository carParkRepository) {
+    public CarParkImportService(CarParkRepository carParkRepository, ApplicationEventPublisher eventPublisher,
+                                AvailabilityChangeNotifier changeNotifier) {
         this.carParkRepository = carParkRepository;
+        this.eventPublisher = eventPublisher;
+        this.changeNotifier = changeNotifier;
     }
 
     @Transactional
     public ImportResult importFromCsv(String classpathFile) throws Exception {
+        return importFromCsv(classpathFile, new JobProgress());
+    }
+
+    /** Same as {@link #importFromCsv(String)}, reporting rows read, converted and saved as it goes. */
+    @Transactional
+    public ImportResult importFromCsv(String classpathFile, JobProgress progress) throws Exception {
         var resource = new ClassPathResource(classpathFile);
         if (!resource.exists()) {
             throw new IllegalArgumentException("CSV file not found on classpath: " + classpathFile);
@@ -42,6 +55,7 @@ public class CarParkImportService {
 
                 for (CSVRecord rec : parser) {
                     total++;
+                    progress.rowRead();
                     String id = rec.get("car_park_no").trim();
                     String address = rec.get("address").trim();
                     String xStr = rec.get("x_coord");
@@ -60,6 +74,7 @@ public class CarParkImportService {
                     }
                     var latLng = CoordinateConverter.svy21ToWgs84(x, y);
                     converted++;
+                    progress.rowConverted();
 
                     var cp = carParkRepository.findById(id).orElseGet(CarPark::new);
                     cp.setId(id);
@@ -76,10 +91,17 @@ public class CarParkImportService {
                     batch.add(cp);
                     if (batch.size() == 500) {
                         carParkRepository.saveAll(batch);
+                        progress.rowsWritten(batch.size());
                         batch.clear();
                     }
                 }
-                if (!batch.isEmpty()) carParkRepository.saveAll(batch);
+                if (!batch.isEmpty()) {
+                    carParkRepository.saveAll(batch);
+                    progress.rowsWritten(batch.size());
+                }
+                eventPublisher.publishEvent(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.IMPORT));
+                // Delivered to the other replicas when this transaction commits
+                changeNotifier.notifyImported();
 
                 return new ImportResult(total, converted, skipped);
             }
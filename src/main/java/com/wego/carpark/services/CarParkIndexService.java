@@ -0,0 +1,355 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.entities.CarParkAvailability;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.AvailableCarPark;
+import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.utils.CoordinateConverter;
+import com.wego.carpark.utils.SpatialGridIndex;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.stream.Collectors;
+
+/**
+ * Holds the in-memory read model of available car parks used by nearest searches, so that requests
+ * are served without touching the database. Each lot type gets its own snapshot, so a search for one
+ * type never scans the others; all snapshots of one rebuild share a version number. Snapshots are
+ * rebuilt on startup and after imports commit, and published by swapping a single volatile reference.
+ * Availability changes that name their car parks are patched in instead: only those rows are read back,
+ * lot types they do not touch are carried over as-is, and a type whose membership is unchanged keeps its
+ * spatial grid with fresh copies of the lot counts. A few previous versions are retained so that cursor
+ * paging can stay on the snapshot it started from. In database search mode nothing is built or patched.
+ */
+@Slf4j
+@Service
+public class CarParkIndexService {
+    private final CarParkAvailabilityRepository availabilityRepository;
+    private final CarparkProperties carparkProperties;
+
+    private volatile List<Generation> generations = List.of(); // newest first
+    private long version;
+
+    public CarParkIndexService(CarParkAvailabilityRepository availabilityRepository, CarparkProperties carparkProperties) {
+        this.availabilityRepository = availabilityRepository;
+        this.carparkProperties = carparkProperties;
+    }
+
+    /** Current snapshot of car lots. */
+    public IndexedSnapshot current() {
+        return current(CarParkAvailability.CAR);
+    }
+
+    /** Current snapshot of the given lot type; empty when no car park has lots of that type available. */
+    public IndexedSnapshot current(String lotType) {
+        List<Generation> retained = generations;
+        Generation generation = retained.isEmpty() ? firstGeneration() : retained.get(0);
+        return generation.snapshot(lotType);
+    }
+
+    /** Builds the index on first use, unless another request built it while this one waited for the lock. */
+    private synchronized Generation firstGeneration() {
+        List<Generation> retained = generations;
+        return retained.isEmpty() ? rebuildGeneration() : retained.get(0);
+    }
+
+    public Optional<IndexedSnapshot> find(long snapshotVersion, String lotType) {
+        return generations.stream()
+                .filter(g -> g.version() == snapshotVersion)
+                .findFirst()
+                .map(g -> g.snapshot(lotType));
+    }
+
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @Transactional(propagation = Propagation.REQUIRES_NEW, readOnly = true)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarParkDataChanged(CarParkDataChangedEvent event) {
+        // Database mode never reads the index, so it is not loaded or kept up to date
+        if (carparkProperties.getSearch().getMode() != CarparkProperties.SearchMode.MEMORY) return;
+        if (event.source() == CarParkDataChangedEvent.Source.AVAILABILITY && event.isIncremental()) {
+            patch(event.carParkIds());
+        } else {
+            rebuild();
+        }
+    }
+
+    /** Builds the snapshot as soon as the application is up, so the first request does not pay for it. */
+    @Transactional(readOnly = true)
+    @EventListener(ApplicationReadyEvent.class)
+    public void onApplicationReady() {
+        if (carparkProperties.getSearch().getMode() != CarparkProperties.SearchMode.MEMORY) return;
+        try {
+            rebuild();
+        } catch (RuntimeException e) {
+            log.warn("Could not build car park index on startup, it will be built on first use: {}", e.getMessage());
+        }
+    }
+
+    /** Rebuilds the snapshots of every lot type and returns the one for car lots. */
+    public IndexedSnapshot rebuild() {
+        return rebuildGeneration().snapshot(CarParkAvailability.CAR);
+    }
+
+    private synchronized Generation rebuildGeneration() {
+        long start = System.nanoTime();
+        // Sorted by id so that the index order doubles as a stable tie-breaker for equal distances.
+        // Sorted here rather than in SQL because cursor lookups rely on Java's String ordering.
+        Map<String, List<AvailableCarPark>> rowsByLotType = availabilityRepository.findAvailableCarParks().stream()
+                .sorted(Comparator.comparing(AvailableCarPark::id))
+                .collect(Collectors.groupingBy(AvailableCarPark::lotType, TreeMap::new, Collectors.toList()));
+
+        long nextVersion = ++version;
+        Map<String, IndexedSnapshot> byLotType = new HashMap<>();
+        int entries = 0;
+        for (Map.Entry<String, List<AvailableCarPark>> group : rowsByLotType.entrySet()) {
+            byLotType.put(group.getKey(), build(nextVersion, group.getKey(), group.getValue()));
+            entries += group.getValue().size();
+        }
+
+        Generation next = publish(new Generation(nextVersion, Map.copyOf(byLotType)));
+        log.info("Rebuilt car park index v{} with {} entries over lot types {} in {} ms",
+                nextVersion, entries, rowsByLotType.keySet(), (System.nanoTime() - start) / 1_000_000);
+        return next;
+    }
+
+    /** Applies the current rows of the given car parks to the latest snapshots and returns the car lots one. */
+    public IndexedSnapshot patch(Collection<String> carParkIds) {
+        return patchGeneration(carParkIds).snapshot(CarParkAvailability.CAR);
+    }
+
+    private synchronized Generation patchGeneration(Collection<String> carParkIds) {
+        List<Generation> retained = generations;
+        if (retained.isEmpty()) return rebuildGeneration();
+        Generation base = retained.get(0);
+        if (carParkIds.isEmpty()) return base;
+
+        long start = System.nanoTime();
+        Map<String, List<AvailableCarPark>> changesByLotType = availabilityRepository.findByCarParkIds(carParkIds)
+                .stream()
+                .collect(Collectors.groupingBy(AvailableCarPark::lotType, TreeMap::new, Collectors.toList()));
+
+        long nextVersion = ++version;
+        Map<String, IndexedSnapshot> byLotType = new HashMap<>();
+        for (Map.Entry<String, IndexedSnapshot> entry : base.byLotType().entrySet()) {
+            if (!changesByLotType.containsKey(entry.getKey())) {
+                byLotType.put(entry.getKey(), entry.getValue().withVersion(nextVersion));
+            }
+        }
+        for (Map.Entry<String, List<AvailableCarPark>> group : changesByLotType.entrySet()) {
+            IndexedSnapshot patched = patchLotType(nextVersion, base.snapshot(group.getKey()), group.getValue());
+            if (patched.size() > 0) byLotType.put(group.getKey(), patched);
+        }
+
+        Generation next = publish(new Generation(nextVersion, Map.copyOf(byLotType)));
+        log.debug("Patched car park index v{} with {} car parks over lot types {} in {} ms",
+                nextVersion, carParkIds.size(), changesByLotType.keySet(), (System.nanoTime() - start) / 1_000_000);
+        return next;
+    }
+
+    private IndexedSnapshot patchLotType(long snapshotVersion, IndexedSnapshot snapshot, List<AvailableCarPark> rows) {
+        int[] indexes = new int[rows.size()];
+        boolean sameMembers = true;
+        for (int i = 0; i < rows.size() && sameMembers; i++) {
+            indexes[i] = snapshot.indexOf(rows.get(i).id());
+            sameMembers = indexes[i] >= 0 && rows.get(i).availableLots() > 0;
+        }
+        if (sameMembers) {
+            return snapshot.withLots(snapshotVersion, indexes, rows);
+        }
+
+        // A car park filled up or became available: rebuild this lot type from memory plus the changed rows
+        Map<String, AvailableCarPark> merged = new TreeMap<>();
+        for (int i = 0; i < snapshot.size(); i++) {
+            merged.put(snapshot.id(i), snapshot.row(i));
+        }
+        for (AvailableCarPark row : rows) {
+            if (row.availableLots() > 0) merged.put(row.id(), row);
+            else merged.remove(row.id());
+        }
+        return build(snapshotVersion, snapshot.lotType(), new ArrayList<>(merged.values()));
+    }
+
+    private Generation publish(Generation next) {
+        int retain = Math.max(1, carparkProperties.getIndex().getRetainedSnapshots());
+        List<Generation> retained = new ArrayList<>(retain);
+        retained.add(next);
+        retained.addAll(generations.subList(0, Math.min(generations.size(), retain - 1)));
+        generations = List.copyOf(retained);
+        return next;
+    }
+
+    private IndexedSnapshot build(long snapshotVersion, String lotType, List<AvailableCarPark> rows) {
+        int n = rows.size();
+        String[] ids = new String[n];
+        String[] addresses = new String[n];
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        double[] svy21X = new double[n];
+        double[] svy21Y = new double[n];
+        int[] totalLots = new int[n];
+        int[] availableLots = new int[n];
+        for (int i = 0; i < n; i++) {
+            AvailableCarPark row = rows.get(i);
+            ids[i] = row.id();
+            addresses[i] = row.address();
+            latitudes[i] = row.latitude();
+            longitudes[i] = row.longitude();
+            // Rows without stored SVY21 coordinates are projected from their lat/lng
+            CoordinateConverter.Svy21 svy21 = row.svy21X() != null && row.svy21Y() != null
+                    ? new CoordinateConverter.Svy21(row.svy21X(), row.svy21Y())
+                    : CoordinateConverter.wgs84ToSvy21(row.latitude(), row.longitude());
+            svy21X[i] = svy21.x();
+            svy21Y[i] = svy21.y();
+            totalLots[i] = row.totalLots();
+            availableLots[i] = row.availableLots();
+        }
+        SpatialGridIndex grid = SpatialGridIndex.build(latitudes, longitudes, svy21X, svy21Y,
+                carparkProperties.getIndex().getCellSizeDegrees());
+        return new IndexedSnapshot(snapshotVersion, lotType, ids, addresses, latitudes, longitudes,
+                svy21X, svy21Y, totalLots, availableLots, grid);
+    }
+
+    /** Snapshots of one rebuild, by lot type. Types absent from the rebuild get an empty snapshot. */
+    private record Generation(long version, Map<String, IndexedSnapshot> byLotType) {
+        IndexedSnapshot snapshot(String lotType) {
+            IndexedSnapshot snapshot = byLotType.get(lotType);
+            return snapshot != null ? snapshot : IndexedSnapshot.empty(version, lotType);
+        }
+    }
+
+    /**
+     * Immutable read model of the available car parks, stored as parallel arrays ordered by id.
+     * Arrays are never modified after construction and are not exposed, so a published snapshot
+     * can be read by any number of requests without locking.
+     */
+    public static final class IndexedSnapshot {
+        private final long version;
+        private final String lotType;
+        private final String[] ids;
+        private final String[] addresses;
+        private final double[] latitudes;
+        private final double[] longitudes;
+        private final double[] svy21X;
+        private final double[] svy21Y;
+        private final int[] totalLots;
+        private final int[] availableLots;
+        private final SpatialGridIndex grid;
+
+        IndexedSnapshot(long version, String lotType, String[] ids, String[] addresses, double[] latitudes,
+                        double[] longitudes, double[] svy21X, double[] svy21Y, int[] totalLots,
+                        int[] availableLots, SpatialGridIndex grid) {
+            this.version = version;
+            this.lotType = lotType;
+            this.ids = ids;
+            this.addresses = addresses;
+            this.latitudes = latitudes;
+            this.longitudes = longitudes;
+            this.svy21X = svy21X;
+            this.svy21Y = svy21Y;
+            this.totalLots = totalLots;
+            this.availableLots = availableLots;
+            this.grid = grid;
+        }
+
+        static IndexedSnapshot empty(long version, String lotType) {
+            return new IndexedSnapshot(version, lotType, new String[0], new String[0], new double[0], new double[0],
+                    new double[0], new double[0], new int[0], new int[0],
+                    SpatialGridIndex.build(new double[0], new double[0], 1));
+        }
+
+        /** Same entries under another version; arrays are shared since neither copy modifies them. */
+        IndexedSnapshot withVersion(long newVersion) {
+            return new IndexedSnapshot(newVersion, lotType, ids, addresses, latitudes, longitudes, svy21X, svy21Y,
+                    totalLots, availableLots, grid);
+        }
+
+        /** Same entries and grid with the lot counts at {@code indexes} replaced by those of {@code rows}. */
+        IndexedSnapshot withLots(long newVersion, int[] indexes, List<AvailableCarPark> rows) {
+            int[] newTotalLots = totalLots.clone();
+            int[] newAvailableLots = availableLots.clone();
+            for (int i = 0; i < indexes.length; i++) {
+                newTotalLots[indexes[i]] = rows.get(i).totalLots();
+                newAvailableLots[indexes[i]] = rows.get(i).availableLots();
+            }
+            return new IndexedSnapshot(newVersion, lotType, ids, addresses, latitudes, longitudes, svy21X, svy21Y,
+                    newTotalLots, newAvailableLots, grid);
+        }
+
+        AvailableCarPark row(int index) {
+            return new AvailableCarPark(ids[index], addresses[index], latitudes[index], longitudes[index], lotType,
+                    totalLots[index], availableLots[index], svy21X[index], svy21Y[index]);
+        }
+
+        public long version() {
+            return version;
+        }
+
+        public String lotType() {
+            return lotType;
+        }
+
+        public int size() {
+            return ids.length;
+        }
+
+        public SpatialGridIndex grid() {
+            return grid;
+        }
+
+        public String id(int index) {
+            return ids[index];
+        }
+
+        public String address(int index) {
+            return addresses[index];
+        }
+
+        public double latitude(int index) {
+            return latitudes[index];
+        }
+
+        public double longitude(int index) {
+            return longitudes[index];
+        }
+
+        public int totalLots(int index) {
+            return totalLots[index];
+        }
+
+        public int availableLots(int index) {
+            return availableLots[index];
+        }
+
+        /** Index of the given car park id, or -1 when it is not in this snapshot. */
+        public int indexOf(String carParkId) {
+            int found = Arrays.binarySearch(ids, carParkId);
+            return found >= 0 ? found : -1;
+        }
+
+        /**
+         * Index of the given car park id, or of the last entry ordering before it when it is absent
+         * (-1 if none). Entries are sorted by id, so this maps a cursor onto any snapshot version.
+         */
+        public int indexAtOrBefore(String carParkId) {
+            int found = Arrays.binarySearch(ids, carParkId);
+            return found >= 0 ? found : -found - 2;
+        }
+    }
+}
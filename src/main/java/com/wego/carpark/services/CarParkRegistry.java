@@ -0,0 +1,78 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.CarParkRepository;
+import com.wego.carpark.repositories.CarParkTotalLots;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * In-memory view of which car parks exist and which still have no total lot count, so that an
+ * availability refresh can validate its rows without a query per row. Loaded on first use and
+ * reloaded after every import.
+ */
+@Slf4j
+@Component
+public class CarParkRegistry {
+    private final CarParkRepository carParkRepository;
+
+    private volatile Ids ids; // null until first loaded
+
+    public CarParkRegistry(CarParkRepository carParkRepository) {
+        this.carParkRepository = carParkRepository;
+    }
+
+    public boolean isKnown(String carParkId) {
+        return ids().known().contains(carParkId);
+    }
+
+    public boolean hasZeroTotalLots(String carParkId) {
+        return ids().zeroTotalLots().contains(carParkId);
+    }
+
+    /** Drops car parks whose total lots have just been filled in from the zero-total set. */
+    public synchronized void totalLotsFilled(Collection<String> carParkIds) {
+        Ids current = ids();
+        Set<String> zeroTotalLots = new HashSet<>(current.zeroTotalLots());
+        zeroTotalLots.removeAll(carParkIds);
+        ids = new Ids(current.known(), Set.copyOf(zeroTotalLots));
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarParkDataChanged(CarParkDataChangedEvent event) {
+        if (event.source() == CarParkDataChangedEvent.Source.IMPORT) {
+            reload();
+        }
+    }
+
+    public synchronized void reload() {
+        Set<String> known = new HashSet<>();
+        Set<String> zeroTotalLots = new HashSet<>();
+        for (CarParkTotalLots carPark : carParkRepository.findAllTotalLots()) {
+            known.add(carPark.id());
+            if (carPark.totalLots() == 0) {
+                zeroTotalLots.add(carPark.id());
+            }
+        }
+        ids = new Ids(Set.copyOf(known), Set.copyOf(zeroTotalLots));
+        log.info("Loaded {} car park ids, {} without total lots", known.size(), zeroTotalLots.size());
+    }
+
+    private Ids ids() {
+        Ids current = ids;
+        if (current == null) {
+            synchronized (this) {
+                if (ids == null) reload();
+                current = ids;
+            }
+        }
+        return current;
+    }
+
+    private record Ids(Set<String> known, Set<String> zeroTotalLots) {}
+}
@@ -1,45 +1,300 @@
 package com.wego.carpark.services;
 
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.dto.requests.NearestCarParksBatchRequest;
+import com.wego.carpark.dto.requests.NearestCarParksRequest;
 import com.wego.carpark.dto.responses.CarParkResponse;
-import com.wego.carpark.entities.CarPark;
 import com.wego.carpark.entities.CarParkAvailability;
 import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.repositories.NearestCarParkView;
+import com.wego.carpark.services.CarParkIndexService.IndexedSnapshot;
+import com.wego.carpark.utils.CoordinateConverter;
 import com.wego.carpark.utils.DistanceUtil;
+import com.wego.carpark.utils.NearestCursor;
+import com.wego.carpark.utils.SpatialGridIndex;
+import com.wego.carpark.utils.SpatialGridIndex.Neighbours;
+import jakarta.annotation.PreDestroy;
 import org.springframework.stereotype.Service;
 
-import java.util.Collections;
-import java.util.Comparator;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 @Service
 public class CarParkService {
+    private static final int MIN_BATCH_CHUNK = 16; // origins per task, below which a hand-off costs more than it saves
 
+    private final CarParkIndexService carParkIndexService;
     private final CarParkAvailabilityRepository carParkAvailabilityRepository;
+    private final CarparkProperties carparkProperties;
+    private final NearestCarParkCache nearestCarParkCache;
+    private final int batchParallelism;
+    private final ExecutorService batchExecutor;
 
-    public CarParkService(CarParkAvailabilityRepository carParkAvailabilityRepository) {
+    public CarParkService(CarParkIndexService carParkIndexService,
+                          CarParkAvailabilityRepository carParkAvailabilityRepository,
+                          CarparkProperties carparkProperties,
+                          NearestCarParkCache nearestCarParkCache) {
+        this.carParkIndexService = carParkIndexService;
         this.carParkAvailabilityRepository = carParkAvailabilityRepository;
+        this.carparkProperties = carparkProperties;
+        this.nearestCarParkCache = nearestCarParkCache;
+        this.batchParallelism = Math.max(1, carparkProperties.getBatch().getParallelism());
+        AtomicInteger threads = new AtomicInteger();
+        this.batchExecutor = Executors.newFixedThreadPool(batchParallelism, runnable -> {
+            Thread thread = new Thread(runnable, "nearest-batch-" + threads.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void shutdown() {
+        batchExecutor.shutdown();
     }
 
     public List<CarParkResponse> findNearestCarParks(double latitude, double longitude, int page, int perPage) {
-        List<CarParkAvailability> availableList = carParkAvailabilityRepository.findByAvailableLotsGreaterThan(0);
-
-        List<CarParkResponse> dtos = availableList.stream()
-                .map(availability -> {
-                    CarPark carPark = availability.getCarPark();
-                    double distance = DistanceUtil.haversine(latitude, longitude, carPark.getLatitude(), carPark.getLongitude());
-                    return CarParkResponse.builder()
-                            .address(carPark.getAddress())
-                            .latitude(carPark.getLatitude())
-                            .longitude(carPark.getLongitude())
-                            .totalLots(carPark.getTotalLots())
-                            .availableLots(availability.getAvailableLots())
-                            .distance(distance)
-                            .build();
-                }).sorted(Comparator.comparingDouble(CarParkResponse::getDistance)).toList();
-
-        int fromIndex = (page - 1) * perPage;
-        int toIndex = Math.min(fromIndex + perPage, dtos.size());
-        if (fromIndex > toIndex) return Collections.emptyList();
-        return dtos.subList(fromIndex, toIndex);
+        NearestCarParksRequest request = new NearestCarParksRequest();
+        request.setLatitude(latitude);
+        request.setLongitude(longitude);
+        request.setPage(page);
+        request.setPerPage(perPage);
+        return findNearestCarParks(request).items();
     }
+
+    /**
+     * Offset paging when the request has no cursor, keyset paging otherwise. A cursor resumes after the
+     * (distance, id) of the previous page's last row on the snapshot that page was served from, so
+     * results do not shift when availability is refreshed in between; if that snapshot has been
+     * retired the current one is used instead. {@code maxDistanceKm}, when set, limits the search to
+     * car parks within that radius. Only lots of {@code lotType} with at least {@code minAvailableLots}
+     * free are returned; in memory each lot type has its own snapshot. Offset pages go through
+     * {@link NearestCarParkCache}.
+     */
+    public NearestPage findNearestCarParks(NearestCarParksRequest request) {
+        boolean cursorPaging = request.getCursor() != null && !request.getCursor().isBlank();
+        if (carparkProperties.getSearch().getMode() == CarparkProperties.SearchMode.DATABASE) {
+            return cursorPaging
+                    ? findNearestInDatabase(request)
+                    : cache(0, request, () -> findNearestInDatabase(request));
+        }
+        if (cursorPaging) {
+            NearestCursor after = NearestCursor.decode(request.getCursor());
+            IndexedSnapshot snapshot = carParkIndexService.find(after.snapshotVersion(), lotType(request))
+                    .orElseGet(() -> carParkIndexService.current(lotType(request)));
+            return findNearestInMemory(request, snapshot, after);
+        }
+        IndexedSnapshot snapshot = carParkIndexService.current(lotType(request));
+        return cache(snapshot.version(), request, () -> findNearestInMemory(request, snapshot, null));
+    }
+
+    private NearestPage cache(long snapshotVersion, NearestCarParksRequest request, Supplier<NearestPage> loader) {
+        return nearestCarParkCache.get(snapshotVersion, request.getLatitude(), request.getLongitude(),
+                request.getPage(), request.getPerPage(), request.getMaxDistanceKm(), lotType(request),
+                request.getMinAvailableLots(), loader);
+    }
+
+    private static String lotType(NearestCarParksRequest request) {
+        return request.getLotType() != null ? request.getLotType() : CarParkAvailability.CAR;
+    }
+
+    /** Snapshots hold only car parks with free lots, so a filter is needed only above one lot. */
+    private static SpatialGridIndex.Search withMinAvailableLots(SpatialGridIndex.Search search,
+                                                                IndexedSnapshot snapshot, int minAvailableLots) {
+        return minAvailableLots > 1 ? search.where(i -> snapshot.availableLots(i) >= minAvailableLots) : search;
+    }
+
+    private NearestPage findNearestInMemory(NearestCarParksRequest request, IndexedSnapshot snapshot, NearestCursor after) {
+        double latitude = request.getLatitude();
+        double longitude = request.getLongitude();
+        int perPage = request.getPerPage();
+        double maxDistanceKm = request.getMaxDistanceKm() != null
+                ? request.getMaxDistanceKm()
+                : Double.POSITIVE_INFINITY;
+
+        boolean planar = carparkProperties.getSearch().getRanking() == CarparkProperties.Ranking.PLANAR;
+
+        Neighbours nearest;
+        int fromIndex;
+        if (after != null) {
+            nearest = snapshot.grid().nearest(withMinAvailableLots(
+                    search(latitude, longitude, perPage + 1, maxDistanceKm, planar)
+                            .after(after.distance(), snapshot.indexAtOrBefore(after.carParkId())),
+                    snapshot, request.getMinAvailableLots()));
+            fromIndex = 0;
+        } else {
+            long offset = (long) (request.getPage() - 1) * perPage;
+            if (offset >= snapshot.size()) return new NearestPage(List.of(), null);
+            fromIndex = (int) offset;
+            // Only the best page * perPage (+1 to detect a next page) candidates are kept
+            nearest = snapshot.grid().nearest(withMinAvailableLots(
+                    search(latitude, longitude, fromIndex + perPage + 1, maxDistanceKm, planar),
+                    snapshot, request.getMinAvailableLots()));
+        }
+
+        int toIndex = Math.min(fromIndex + perPage, nearest.size());
+        List<CarParkResponse> dtos = toResponses(snapshot, nearest, fromIndex, toIndex, latitude, longitude, planar);
+
+        String nextCursor = null;
+        if (nearest.size() > toIndex && toIndex > fromIndex) {
+            int last = toIndex - 1;
+            // The cursor carries the ranking key (km, or m^2 for planar ranking) to resume from
+            nextCursor = new NearestCursor(snapshot.version(), nearest.keys()[last],
+                    snapshot.id(nearest.indices()[last])).encode();
+        }
+        return new NearestPage(dtos, nextCursor);
+    }
+
+    /**
+     * Answers the k nearest car parks for every origin, in request order, from a single snapshot so that
+     * all origins see the same availability. Origins are split into contiguous chunks answered on the
+     * bounded batch executor; small batches are answered on the calling thread. Batches search car lots.
+     * In database search mode each origin is one KNN query instead, so the index is never loaded, and
+     * origins may see availability from different refreshes.
+     */
+    public List<List<CarParkResponse>> findNearestCarParksBatch(List<NearestCarParksBatchRequest.Origin> origins) {
+        Function<List<NearestCarParksBatchRequest.Origin>, List<List<CarParkResponse>>> answer;
+        if (carparkProperties.getSearch().getMode() == CarparkProperties.SearchMode.DATABASE) {
+            answer = this::findNearestInDatabase;
+        } else {
+            IndexedSnapshot snapshot = carParkIndexService.current();
+            boolean planar = carparkProperties.getSearch().getRanking() == CarparkProperties.Ranking.PLANAR;
+            answer = chunk -> findNearest(snapshot, chunk, planar);
+        }
+        int chunks = Math.min(batchParallelism, (origins.size() + MIN_BATCH_CHUNK - 1) / MIN_BATCH_CHUNK);
+        if (chunks <= 1) return answer.apply(origins);
+
+        int chunkSize = (origins.size() + chunks - 1) / chunks;
+        List<CompletableFuture<List<List<CarParkResponse>>>> futures = new ArrayList<>(chunks);
+        for (int from = 0; from < origins.size(); from += chunkSize) {
+            List<NearestCarParksBatchRequest.Origin> chunk =
+                    origins.subList(from, Math.min(from + chunkSize, origins.size()));
+            futures.add(CompletableFuture.supplyAsync(() -> answer.apply(chunk), batchExecutor));
+        }
+        List<List<CarParkResponse>> results = new ArrayList<>(origins.size());
+        for (CompletableFuture<List<List<CarParkResponse>>> future : futures) {
+            results.addAll(future.join());
+        }
+        return results;
+    }
+
+    private List<List<CarParkResponse>> findNearest(IndexedSnapshot snapshot,
+                                                    List<NearestCarParksBatchRequest.Origin> origins,
+                                                    boolean planar) {
+        List<List<CarParkResponse>> results = new ArrayList<>(origins.size());
+        for (NearestCarParksBatchRequest.Origin origin : origins) {
+            Neighbours nearest = snapshot.grid().nearest(search(origin.getLatitude(), origin.getLongitude(),
+                    origin.getK(), Double.POSITIVE_INFINITY, planar));
+            results.add(toResponses(snapshot, nearest, 0, nearest.size(),
+                    origin.getLatitude(), origin.getLongitude(), planar));
+        }
+        return results;
+    }
+
+    private List<List<CarParkResponse>> findNearestInDatabase(List<NearestCarParksBatchRequest.Origin> origins) {
+        List<List<CarParkResponse>> results = new ArrayList<>(origins.size());
+        for (NearestCarParksBatchRequest.Origin origin : origins) {
+            NearestCarParksRequest request = new NearestCarParksRequest();
+            request.setLatitude(origin.getLatitude());
+            request.setLongitude(origin.getLongitude());
+            request.setPerPage(origin.getK());
+            results.add(findNearestInDatabase(request).items());
+        }
+        return results;
+    }
+
+    private static List<CarParkResponse> toResponses(IndexedSnapshot snapshot, Neighbours nearest, int fromIndex,
+                                                     int toIndex, double latitude, double longitude, boolean planar) {
+        List<CarParkResponse> dtos = new ArrayList<>(Math.max(0, toIndex - fromIndex));
+        for (int i = fromIndex; i < toIndex; i++) {
+            int index = nearest.indices()[i];
+            dtos.add(CarParkResponse.builder()
+                    .address(snapshot.address(index))
+                    .latitude(snapshot.latitude(index))
+                    .longitude(snapshot.longitude(index))
+                    .lotType(snapshot.lotType())
+                    .totalLots(snapshot.totalLots(index))
+                    .availableLots(snapshot.availableLots(index))
+                    .distance(planar
+                            ? DistanceUtil.haversine(latitude, longitude, snapshot.latitude(index), snapshot.longitude(index))
+                            : nearest.keys()[i])
+                    .build());
+        }
+        return dtos;
+    }
+
+    /**
+     * Planar ranking projects the origin to SVY21 once and ranks candidates by squared distance on the
+     * stored SVY21 coordinates; haversine is then computed only for the rows that are returned.
+     */
+    private static SpatialGridIndex.Search search(double latitude, double longitude, int k,
+                                                  double maxDistanceKm, boolean planar) {
+        SpatialGridIndex.Search search = SpatialGridIndex.Search.of(latitude, longitude, k).within(maxDistanceKm);
+        if (!planar) return search;
+        CoordinateConverter.Svy21 origin = CoordinateConverter.wgs84ToSvy21(latitude, longitude);
+        return search.planar(origin.x(), origin.y());
+    }
+
+    /**
+     * Database search mode: Postgres orders by the earthdistance KNN operator and returns only the
+     * requested page joined with availability. A radius becomes a lat/lng range predicate that can use
+     * idx_carpark_coordinates; rows past the exact haversine radius end the page. Cursors carry the
+     * operator value rather than a snapshot version, so they are not pinned to a snapshot in this mode.
+     */
+    private NearestPage findNearestInDatabase(NearestCarParksRequest request) {
+        double latitude = request.getLatitude();
+        double longitude = request.getLongitude();
+        int perPage = request.getPerPage();
+        Double maxDistanceKm = request.getMaxDistanceKm();
+        DistanceUtil.BoundingBox box = maxDistanceKm != null
+                ? DistanceUtil.boundingBox(latitude, longitude, maxDistanceKm)
+                : new DistanceUtil.BoundingBox(-90, 90, -180, 180);
+
+        List<NearestCarParkView> rows;
+        if (request.getCursor() != null && !request.getCursor().isBlank()) {
+            NearestCursor after = NearestCursor.decode(request.getCursor());
+            rows = carParkAvailabilityRepository.findNearestAvailableAfter(latitude, longitude,
+                    box.minLat(), box.maxLat(), box.minLon(), box.maxLon(),
+                    lotType(request), request.getMinAvailableLots(), after.distance(), after.carParkId(), perPage + 1);
+        } else {
+            rows = carParkAvailabilityRepository.findNearestAvailable(latitude, longitude,
+                    box.minLat(), box.maxLat(), box.minLon(), box.maxLon(),
+                    lotType(request), request.getMinAvailableLots(),
+                    perPage + 1, (long) (request.getPage() - 1) * perPage);
+        }
+
+        List<CarParkResponse> dtos = new ArrayList<>(Math.min(perPage, rows.size()));
+        boolean more = false;
+        for (NearestCarParkView row : rows) {
+            double distance = DistanceUtil.haversine(latitude, longitude, row.getLatitude(), row.getLongitude());
+            if (maxDistanceKm != null && distance > maxDistanceKm) break;
+            if (dtos.size() == perPage) {
+                more = true;
+                break;
+            }
+            dtos.add(CarParkResponse.builder()
+                    .address(row.getAddress())
+                    .latitude(row.getLatitude())
+                    .longitude(row.getLongitude())
+                    .lotType(lotType(request))
+                    .totalLots(row.getTotalLots())
+                    .availableLots(row.getAvailableLots())
+                    .distance(distance)
+                    .build());
+        }
+
+        String nextCursor = null;
+        if (more) {
+            NearestCarParkView last = rows.get(perPage - 1);
+            nextCursor = new NearestCursor(0, last.getRankDistance(), last.getId()).encode();
+        }
+        return new NearestPage(dtos, nextCursor);
+    }
+
+    public record NearestPage(List<CarParkResponse> items, String nextCursor) {}
 }
@@ -0,0 +1,24 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.events.AvailabilityAlert;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/** Keeps delivered alerts in memory, for tests and for embedding the alert service in-process. */
+public class InMemoryAlertSink implements AlertSink {
+    private final List<AvailabilityAlert> alerts = new CopyOnWriteArrayList<>();
+
+    @Override
+    public void deliver(AvailabilityAlert alert) {
+        alerts.add(alert);
+    }
+
+    public List<AvailabilityAlert> alerts() {
+        return List.copyOf(alerts);
+    }
+
+    public void clear() {
+        alerts.clear();
+    }
+}
@@ -0,0 +1,37 @@
+package com.wego.carpark.services;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Row counters of a running import or refresh, updated by the worker and read by status requests.
+ * "Read" counts input rows, "converted" those that passed validation, "written" those stored.
+ */
+public final class JobProgress {
+    private final AtomicLong rowsRead = new AtomicLong();
+    private final AtomicLong rowsConverted = new AtomicLong();
+    private final AtomicLong rowsWritten = new AtomicLong();
+
+    public void rowRead() {
+        rowsRead.incrementAndGet();
+    }
+
+    public void rowConverted() {
+        rowsConverted.incrementAndGet();
+    }
+
+    public void rowsWritten(int count) {
+        rowsWritten.addAndGet(count);
+    }
+
+    public long rowsRead() {
+        return rowsRead.get();
+    }
+
+    public long rowsConverted() {
+        return rowsConverted.get();
+    }
+
+    public long rowsWritten() {
+        return rowsWritten.get();
+    }
+}
@@ -0,0 +1,203 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.exceptions.ImportValidationException;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Runs car park imports and availability refreshes as background jobs, so the utility endpoints answer
+ * with a job id at once instead of holding a request thread for the whole run. Jobs run on
+ * {@code carpark.jobs.threads} threads behind a queue of {@code carpark.jobs.queue-capacity}; a
+ * submission that does not fit is rejected. Only one job of each type is active at a time: submitting
+ * the same job again returns the active one, and submitting it with other arguments is refused.
+ * The last {@code carpark.jobs.retained-jobs} jobs stay available for status requests.
+ */
+@Slf4j
+@Service
+public class JobService {
+    private final CarParkImportService importService;
+    private final AvailabilityPoller availabilityPoller;
+    private final ThreadPoolExecutor executor;
+    private final Map<JobType, Job> active = new EnumMap<>(JobType.class);
+    private final Map<String, Job> jobs;
+
+    public JobService(CarParkImportService importService, AvailabilityPoller availabilityPoller,
+                      CarparkProperties carparkProperties) {
+        this.importService = importService;
+        this.availabilityPoller = availabilityPoller;
+        CarparkProperties.Jobs properties = carparkProperties.getJobs();
+        int threads = Math.max(1, properties.getThreads());
+        AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity())), runnable -> {
+                    Thread thread = new Thread(runnable, "carpark-job-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        int retained = Math.max(1, properties.getRetainedJobs());
+        this.jobs = new LinkedHashMap<>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                // Active jobs are never evicted while they can still be polled for
+                return size() > retained && !active.containsValue(eldest.getValue());
+            }
+        };
+    }
+
+    public Submission submitImport(String classpathFile) {
+        return submit(JobType.IMPORT_CARPARKS, classpathFile,
+                progress -> importService.importFromCsv(classpathFile, progress));
+    }
+
+    public Submission submitAvailabilityRefresh() {
+        return submit(JobType.UPDATE_AVAILABILITY, null, availabilityPoller::refreshNow);
+    }
+
+    public synchronized Optional<JobStatus> find(String jobId) {
+        return Optional.ofNullable(jobs.get(jobId)).map(Job::status);
+    }
+
+    @PreDestroy
+    public void stop() {
+        executor.shutdownNow();
+    }
+
+    private synchronized Submission submit(JobType type, String argument, Work work) {
+        Job current = active.get(type);
+        if (current != null) {
+            return new Submission(Objects.equals(current.argument, argument) ? Outcome.COALESCED : Outcome.CONFLICT,
+                    current.status());
+        }
+        Job job = new Job(UUID.randomUUID().toString(), type, argument);
+        try {
+            executor.execute(() -> run(job, work));
+        } catch (RejectedExecutionException e) {
+            return new Submission(Outcome.REJECTED, null);
+        }
+        active.put(type, job);
+        jobs.put(job.id, job);
+        return new Submission(Outcome.ACCEPTED, job.status());
+    }
+
+    private void run(Job job, Work work) {
+        job.startedAt = Instant.now();
+        job.state = JobState.RUNNING;
+        JobState state = JobState.FAILED;
+        Object result = null;
+        String error = null;
+        Map<String, Object> errorDetails = null;
+        try {
+            result = work.run(job.progress);
+            state = JobState.SUCCEEDED;
+        } catch (Exception e) {
+            log.warn("Job {} ({}) failed: {}", job.id, job.type, e.getMessage());
+            error = e.getMessage();
+            errorDetails = errorDetails(e);
+        } finally {
+            finished(job, state, result, error, errorDetails);
+        }
+    }
+
+    // The same extra fields ApiExceptionHandler adds to an error response, so a job reports what the
+    // synchronous endpoint would have
+    private static Map<String, Object> errorDetails(Exception e) {
+        if (!(e instanceof ImportValidationException validation)) return null;
+        Map<String, Object> details = new LinkedHashMap<>();
+        details.put("missing_headers", validation.getMissingHeaders());
+        details.put("received_headers", validation.getReceivedHeaders());
+        return details;
+    }
+
+    // Leaves the active set before reporting completion, so a finished job is never coalesced into
+    private synchronized void finished(Job job, JobState state, Object result, String error,
+                                       Map<String, Object> errorDetails) {
+        active.remove(job.type, job);
+        job.complete(state, result, error, errorDetails);
+    }
+
+    public enum JobType {
+        IMPORT_CARPARKS,
+        UPDATE_AVAILABILITY
+    }
+
+    public enum JobState {
+        QUEUED,
+        RUNNING,
+        SUCCEEDED,
+        FAILED
+    }
+
+    public enum Outcome {
+        ACCEPTED,  // a new job was queued
+        COALESCED, // the same job was already queued or running
+        CONFLICT,  // a job of this type is active with other arguments
+        REJECTED   // the queue is full
+    }
+
+    /** {@code job} is the new or already active job; null when rejected. */
+    public record Submission(Outcome outcome, JobStatus job) {}
+
+    /**
+     * {@code result} is the {@code ImportResult} or refresh {@code Result} once the job succeeded.
+     * {@code errorDetails} holds the {@code missing_headers} and {@code received_headers} of a failed
+     * CSV validation, and is null otherwise.
+     */
+    public record JobStatus(String id, JobType type, JobState state, String argument, Instant submittedAt,
+                            Instant startedAt, Instant finishedAt, long rowsRead, long rowsConverted,
+                            long rowsWritten, Object result, String error, Map<String, Object> errorDetails) {}
+
+    @FunctionalInterface
+    private interface Work {
+        Object run(JobProgress progress) throws Exception;
+    }
+
+    private static final class Job {
+        private final String id;
+        private final JobType type;
+        private final String argument;
+        private final Instant submittedAt = Instant.now();
+        private final JobProgress progress = new JobProgress();
+        private volatile JobState state = JobState.QUEUED;
+        private volatile Instant startedAt;
+        private volatile Instant finishedAt;
+        private volatile Object result;
+        private volatile String error;
+        private volatile Map<String, Object> errorDetails;
+
+        Job(String id, JobType type, String argument) {
+            this.id = id;
+            this.type = type;
+            this.argument = argument;
+        }
+
+        // State is written last, so a reader that sees it finished also sees the outcome
+        void complete(JobState finalState, Object outcome, String failure, Map<String, Object> failureDetails) {
+            result = outcome;
+            error = failure;
+            errorDetails = failureDetails;
+            finishedAt = Instant.now();
+            state = finalState;
+        }
+
+        JobStatus status() {
+            return new JobStatus(id, type, state, argument, submittedAt, startedAt, finishedAt,
+                    progress.rowsRead(), progress.rowsConverted(), progress.rowsWritten(), result, error,
+                    errorDetails);
+        }
+    }
+}
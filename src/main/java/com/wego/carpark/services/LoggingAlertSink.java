@@ -0,0 +1,18 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.events.AvailabilityAlert;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+/** Default sink: logs each alert until a real delivery channel is plugged in. */
+@Slf4j
+@Component
+public class LoggingAlertSink implements AlertSink {
+
+    @Override
+    public void deliver(AvailabilityAlert alert) {
+        log.info("Alert {}: car park {} lot type {} went {} {} ({} -> {})", alert.subscriptionId(),
+                alert.carParkId(), alert.lotType(), alert.direction(), alert.threshold(), alert.previousLots(),
+                alert.availableLots());
+    }
+}
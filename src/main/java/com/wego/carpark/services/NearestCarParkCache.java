@@ -0,0 +1,88 @@
+package com.wego.carpark.services;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.ConcurrentStatsCounter;
+import com.github.benmanes.caffeine.cache.stats.StatsCounter;
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.function.Supplier;
+
+/**
+ * Response cache for offset-paged nearest searches. Origins are snapped to a square cell of
+ * {@code carpark.cache.cell-size-metres}, so nearby origins share a page (with distances measured from
+ * the origin that filled it). A page with a next cursor is only served again to that exact origin: the
+ * cursor resumes from a (distance, id) measured from it, which would not match another origin's ordering.
+ * Entries expire after {@code carpark.cache.ttl} seconds, the cache is
+ * bounded by {@code carpark.cache.max-entries}, and it is cleared whenever the index is rebuilt.
+ * Hit, miss and eviction counts are published as the {@code cache.*} meters of "nearestCarParks".
+ */
+@Component
+public class NearestCarParkCache {
+    private static final double METRES_PER_DEGREE = 111_320;
+
+    private final boolean enabled;
+    private final double cellSizeDegrees;
+    private final Cache<Key, Entry> cache;
+    // Hits and misses are recorded by hand, since a cached cursor page can be refused to another origin
+    private final StatsCounter stats = new ConcurrentStatsCounter();
+
+    public NearestCarParkCache(CarparkProperties carparkProperties, MeterRegistry meterRegistry) {
+        CarparkProperties.Cache properties = carparkProperties.getCache();
+        this.enabled = properties.isEnabled() && properties.getTtl() > 0;
+        this.cellSizeDegrees = properties.getCellSizeMetres() / METRES_PER_DEGREE;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(properties.getMaxEntries())
+                .expireAfterWrite(Duration.ofSeconds(Math.max(1, properties.getTtl())))
+                .recordStats(() -> stats)
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "nearestCarParks");
+    }
+
+    /**
+     * Returns the cached page for the origin's cell, computing and caching it on a miss. The snapshot
+     * version is part of the key, so a page computed on a retired snapshot is never served. A page with a
+     * next cursor filled by another origin counts as a miss and is computed for this origin, without
+     * replacing the cached one.
+     */
+    public CarParkService.NearestPage get(long snapshotVersion, double latitude, double longitude, int page,
+                                          int perPage, Double maxDistanceKm, String lotType, int minAvailableLots,
+                                          Supplier<CarParkService.NearestPage> loader) {
+        if (!enabled) return loader.get();
+        Key key = new Key(snapshotVersion, (long) Math.floor(latitude / cellSizeDegrees),
+                (long) Math.floor(longitude / cellSizeDegrees), page, perPage, maxDistanceKm, lotType, minAvailableLots);
+        Entry entry = cache.asMap().get(key);
+        if (entry != null && entry.servesOrigin(latitude, longitude)) {
+            stats.recordHits(1);
+            return entry.page();
+        }
+        stats.recordMisses(1);
+        CarParkService.NearestPage page = loader.get();
+        if (entry == null) cache.put(key, new Entry(latitude, longitude, page));
+        return page;
+    }
+
+    // Runs after the index listener so entries are dropped once the new snapshot is live
+    @Order(Ordered.LOWEST_PRECEDENCE)
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onCarParkDataChanged(CarParkDataChangedEvent event) {
+        cache.invalidateAll();
+    }
+
+    private record Entry(double latitude, double longitude, CarParkService.NearestPage page) {
+        boolean servesOrigin(double originLatitude, double originLongitude) {
+            return page.nextCursor() == null || (latitude == originLatitude && longitude == originLongitude);
+        }
+    }
+
+    private record Key(long snapshotVersion, long latCell, long lonCell, int page, int perPage, Double maxDistanceKm,
+                       String lotType, int minAvailableLots) {}
+}
@@ -0,0 +1,191 @@
+package com.wego.carpark.utils;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import com.wego.carpark.dto.requests.AvailabilityRecord;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Incremental parser for the data.gov.sg car park availability payload:
+ * <pre>
+ * {"items": [{"timestamp": "...", "carpark_data": [
+ *     {"carpark_number": "...", "update_datetime": "...",
+ *      "carpark_info": [{"total_lots": "...", "lot_type": "...", "lots_available": "..."}]}]}]}
+ * </pre>
+ * Bytes are fed as they arrive and a record is emitted for every {@code carpark_info} entry of the first
+ * item as soon as its car park object closes, so the document is never buffered or bound to a DTO tree.
+ * Unknown fields and later items are skipped. A car park without {@code carpark_info} yields a single
+ * record with -1 counts. Instances are single-use and not thread-safe.
+ */
+public class AvailabilityJsonParser {
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    private enum Frame { ROOT, ITEMS, ITEM, CARPARK_DATA, CARPARK, INFO_LIST, INFO, OTHER }
+
+    private final JsonParser parser;
+    private final ByteArrayFeeder feeder;
+    private final Deque<Frame> frames = new ArrayDeque<>();
+    private String fieldName;
+    private int items;
+
+    private String timestamp;
+    private String carParkNumber;
+    private String updateDatetime;
+    private final List<Lot> lots = new ArrayList<>();
+    private String lotType;
+    private int totalLots;
+    private int availableLots;
+
+    public AvailabilityJsonParser() {
+        try {
+            this.parser = JSON_FACTORY.createNonBlockingByteArrayParser();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+    }
+
+    /** Decodes a streamed response body into records, releasing each buffer once it has been fed. */
+    public static Flux<AvailabilityRecord> decode(Flux<DataBuffer> body) {
+        return Flux.defer(() -> {
+            AvailabilityJsonParser parser = new AvailabilityJsonParser();
+            return body.concatMapIterable(buffer -> {
+                        try {
+                            byte[] bytes = new byte[buffer.readableByteCount()];
+                            buffer.read(bytes);
+                            return parser.feed(bytes, 0, bytes.length);
+                        } finally {
+                            DataBufferUtils.release(buffer);
+                        }
+                    })
+                    .concatWith(Mono.fromCallable(parser::finish).flatMapIterable(records -> records))
+                    .doOnDiscard(DataBuffer.class, DataBufferUtils::release);
+        });
+    }
+
+    /** Feeds the next chunk of the document and returns the records it completed. */
+    public List<AvailabilityRecord> feed(byte[] bytes, int offset, int length) {
+        try {
+            feeder.feedInput(bytes, offset, offset + length);
+            return drain();
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed availability payload", e);
+        }
+    }
+
+    /** Signals the end of the document and returns any records still pending. */
+    public List<AvailabilityRecord> finish() {
+        try {
+            feeder.endOfInput();
+            List<AvailabilityRecord> records = drain();
+            parser.close();
+            return records;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed availability payload", e);
+        }
+    }
+
+    private List<AvailabilityRecord> drain() throws IOException {
+        List<AvailabilityRecord> records = new ArrayList<>();
+        JsonToken token;
+        while ((token = parser.nextToken()) != null && token != JsonToken.NOT_AVAILABLE) {
+            switch (token) {
+                case FIELD_NAME -> fieldName = parser.currentName();
+                case START_OBJECT, START_ARRAY -> open(token == JsonToken.START_ARRAY);
+                case END_OBJECT, END_ARRAY -> close(records);
+                default -> value();
+            }
+        }
+        return records;
+    }
+
+    private void open(boolean array) {
+        Frame parent = frames.peek();
+        Frame frame = Frame.OTHER;
+        if (parent == null) {
+            frame = array ? Frame.OTHER : Frame.ROOT;
+        } else if (parent == Frame.ROOT && array && "items".equals(fieldName)) {
+            frame = Frame.ITEMS;
+        } else if (parent == Frame.ITEMS && !array) {
+            frame = items++ == 0 ? Frame.ITEM : Frame.OTHER; // only the latest snapshot is read
+        } else if (parent == Frame.ITEM && array && "carpark_data".equals(fieldName)) {
+            frame = Frame.CARPARK_DATA;
+        } else if (parent == Frame.CARPARK_DATA && !array) {
+            frame = Frame.CARPARK;
+            carParkNumber = null;
+            updateDatetime = null;
+            lots.clear();
+        } else if (parent == Frame.CARPARK && array && "carpark_info".equals(fieldName)) {
+            frame = Frame.INFO_LIST;
+        } else if (parent == Frame.INFO_LIST && !array) {
+            frame = Frame.INFO;
+            lotType = null;
+            totalLots = -1;
+            availableLots = -1;
+        }
+        frames.push(frame);
+        fieldName = null;
+    }
+
+    private void close(List<AvailabilityRecord> records) {
+        Frame frame = frames.pop();
+        if (frame == Frame.INFO) {
+            lots.add(new Lot(lotType, totalLots, availableLots));
+        } else if (frame == Frame.CARPARK) {
+            if (lots.isEmpty()) {
+                records.add(new AvailabilityRecord(carParkNumber, null, -1, -1, updateDatetime, timestamp));
+            }
+            for (Lot lot : lots) {
+                records.add(new AvailabilityRecord(carParkNumber, lot.lotType(), lot.totalLots(),
+                        lot.availableLots(), updateDatetime, timestamp));
+            }
+        }
+        fieldName = null;
+    }
+
+    private void value() throws IOException {
+        Frame frame = frames.peek();
+        if (frame == null || fieldName == null) return;
+        String text = parser.getValueAsString();
+        switch (frame) {
+            case ITEM -> {
+                if ("timestamp".equals(fieldName)) timestamp = text;
+            }
+            case CARPARK -> {
+                if ("carpark_number".equals(fieldName)) carParkNumber = text;
+                else if ("update_datetime".equals(fieldName)) updateDatetime = text;
+            }
+            case INFO -> {
+                switch (fieldName) {
+                    case "lot_type" -> lotType = text;
+                    case "total_lots" -> totalLots = parseIntSafe(text);
+                    case "lots_available" -> availableLots = parseIntSafe(text);
+                    default -> { }
+                }
+            }
+            default -> { }
+        }
+    }
+
+    private static int parseIntSafe(String s) {
+        try {
+            return Integer.parseInt(s);
+        } catch (Exception e) {
+            return -1;
+        }
+    }
+
+    private record Lot(String lotType, int totalLots, int availableLots) {}
+}
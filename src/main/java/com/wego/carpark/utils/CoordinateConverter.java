@@ -10,6 +10,9 @@ public class CoordinateConverter {
     private static final CoordinateReferenceSystem DST = CRS_FACTORY.createFromName("EPSG:4326"); // WGS84
     private static final CoordinateTransform TRANSFORM =
             new CoordinateTransformFactory().createTransform(SRC, DST);
+    // Projects request origins, which happens concurrently; proj4j transforms are not thread-safe
+    private static final ThreadLocal<CoordinateTransform> INVERSE_TRANSFORM =
+            ThreadLocal.withInitial(() -> new CoordinateTransformFactory().createTransform(DST, SRC));
 
     public static LatLng svy21ToWgs84(double x, double y) {
         ProjCoordinate in = new ProjCoordinate(x, y);
@@ -19,5 +22,14 @@ public class CoordinateConverter {
         return new LatLng(out.y, out.x);
     }
 
+    public static Svy21 wgs84ToSvy21(double latitude, double longitude) {
+        ProjCoordinate in = new ProjCoordinate(longitude, latitude);
+        ProjCoordinate out = new ProjCoordinate();
+        INVERSE_TRANSFORM.get().transform(in, out);
+        return new Svy21(out.x, out.y);
+    }
+
     public record LatLng(double latitude, double longitude) {}
+
+    public record Svy21(double x, double y) {}
 }
@@ -1,17 +1,40 @@
 package com.wego.carpark.utils;
 
 public class DistanceUtil {
+    public static final double EARTH_RADIUS_KM = 6371;
+
     private DistanceUtil() {
         // Prevent instantiation
     }
     public static double haversine(double lat1, double lon1, double lat2, double lon2) {
-        final int R = 6371; // Radius of earth in kilometers
         double latDistance = Math.toRadians(lat2 - lat1);
         double lonDistance = Math.toRadians(lon2 - lon1);
         double a = Math.sin(latDistance / 2) * Math.sin(latDistance / 2)
                 + Math.cos(Math.toRadians(lat1)) * Math.cos(Math.toRadians(lat2))
                 * Math.sin(lonDistance / 2) * Math.sin(lonDistance / 2);
         double c = 2 * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
-        return R * c;
+        return EARTH_RADIUS_KM * c;
+    }
+
+    /**
+     * Smallest lat/lng box guaranteed to contain every point within {@code radiusKm} (haversine)
+     * of the given coordinate. Longitudes are not wrapped at the antimeridian.
+     */
+    public static BoundingBox boundingBox(double latitude, double longitude, double radiusKm) {
+        double dLat = Math.toDegrees(radiusKm / EARTH_RADIUS_KM);
+        double extremeLat = Math.abs(latitude) + dLat;
+        double dLon = 180;
+        if (extremeLat < 90) {
+            // A point at distance r satisfies sin(dLon / 2) <= sin(r / 2R) / cos(lat) for the widest parallel
+            double s = Math.sin(radiusKm / (2 * EARTH_RADIUS_KM)) / Math.cos(Math.toRadians(extremeLat));
+            if (s < 1) dLon = Math.toDegrees(2 * Math.asin(s));
+        }
+        return new BoundingBox(latitude - dLat, latitude + dLat, longitude - dLon, longitude + dLon);
+    }
+
+    public record BoundingBox(double minLat, double maxLat, double minLon, double maxLon) {
+        public boolean contains(double latitude, double longitude) {
+            return latitude >= minLat && latitude <= maxLat && longitude >= minLon && longitude <= maxLon;
+        }
     }
 }
@@ -0,0 +1,32 @@
+package com.wego.carpark.utils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Opaque keyset cursor for nearest-car-park paging: the snapshot version the page was served
+ * from and the (distance, car park id) of its last row.
+ */
+public record NearestCursor(long snapshotVersion, double distance, String carParkId) {
+
+    public String encode() {
+        String raw = snapshotVersion + "|" + Long.toHexString(Double.doubleToLongBits(distance)) + "|" + carParkId;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static NearestCursor decode(String cursor) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            String[] parts = raw.split("\\|", 3);
+            if (parts.length != 3 || parts[2].isEmpty()) {
+                throw new IllegalArgumentException("Invalid cursor");
+            }
+            long version = Long.parseLong(parts[0]);
+            double distance = Double.longBitsToDouble(Long.parseUnsignedLong(parts[1], 16));
+            return new NearestCursor(version, distance, parts[2]);
+        } catch (IllegalArgumentException ex) {
+            // NumberFormatException and Base64 decoding errors are IllegalArgumentExceptions too
+            throw new IllegalArgumentException("Invalid cursor", ex);
+        }
+    }
+}
@@ -0,0 +1,280 @@
+package com.wego.carpark.utils;
+
+import java.util.Arrays;
+import java.util.function.IntPredicate;
+
+/**
+ * Immutable uniform grid over latitude/longitude used to answer k-nearest queries
+ * without ranking every point. Points are bucketed into square cells; a query walks
+ * rings of cells outward from its own cell and stops as soon as the unvisited area
+ * cannot contain anything closer than the current k-th candidate.
+ */
+public final class SpatialGridIndex {
+    private static final double EARTH_RADIUS_KM = DistanceUtil.EARTH_RADIUS_KM;
+    private static final long MAX_CELLS = 1L << 22;
+
+    /*
+     * Planar (SVY21) distances follow the WGS84 ellipsoid, which is up to ~0.6% shorter than the
+     * 6371 km sphere used by haversine at Singapore's latitude. Bounds derived from haversine are
+     * shrunk by this factor before being compared with planar distances.
+     */
+    private static final double PLANAR_SLACK = 0.98;
+
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final double[] planarX;
+    private final double[] planarY;
+    private final double cellSize;
+    private final double minLat;
+    private final double minLon;
+    private final double maxAbsLat;
+    private final int rows;
+    private final int cols;
+    private final int[] cellStart;
+    private final int[] cellPoints;
+
+    private SpatialGridIndex(double[] latitudes, double[] longitudes, double[] planarX, double[] planarY,
+                             double cellSize, double minLat, double minLon, double maxAbsLat,
+                             int rows, int cols, int[] cellStart, int[] cellPoints) {
+        this.latitudes = latitudes;
+        this.longitudes = longitudes;
+        this.planarX = planarX;
+        this.planarY = planarY;
+        this.cellSize = cellSize;
+        this.minLat = minLat;
+        this.minLon = minLon;
+        this.maxAbsLat = maxAbsLat;
+        this.rows = rows;
+        this.cols = cols;
+        this.cellStart = cellStart;
+        this.cellPoints = cellPoints;
+    }
+
+    public static SpatialGridIndex build(double[] latitudes, double[] longitudes, double cellSizeDegrees) {
+        return build(latitudes, longitudes, null, null, cellSizeDegrees);
+    }
+
+    /**
+     * Builds an index that can also rank by planar distance. {@code planarX}/{@code planarY} are
+     * projected coordinates in metres (SVY21), aligned with the latitude/longitude arrays.
+     */
+    public static SpatialGridIndex build(double[] latitudes, double[] longitudes,
+                                         double[] planarX, double[] planarY, double cellSizeDegrees) {
+        if (latitudes.length != longitudes.length) {
+            throw new IllegalArgumentException("Latitude and longitude arrays must have the same length");
+        }
+        if ((planarX == null) != (planarY == null)
+                || (planarX != null && (planarX.length != latitudes.length || planarY.length != latitudes.length))) {
+            throw new IllegalArgumentException("Planar coordinate arrays must match the latitude array");
+        }
+        if (!(cellSizeDegrees > 0)) {
+            throw new IllegalArgumentException("Cell size must be positive");
+        }
+        int n = latitudes.length;
+        double minLat = Double.POSITIVE_INFINITY, maxLat = Double.NEGATIVE_INFINITY;
+        double minLon = Double.POSITIVE_INFINITY, maxLon = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < n; i++) {
+            minLat = Math.min(minLat, latitudes[i]);
+            maxLat = Math.max(maxLat, latitudes[i]);
+            minLon = Math.min(minLon, longitudes[i]);
+            maxLon = Math.max(maxLon, longitudes[i]);
+        }
+        if (n == 0) {
+            minLat = maxLat = minLon = maxLon = 0;
+        }
+
+        // Outliers (e.g. a car park geocoded to 0,0) must not blow up the cell array
+        double cellSize = cellSizeDegrees;
+        while ((long) span(minLat, maxLat, cellSize) * span(minLon, maxLon, cellSize) > MAX_CELLS) {
+            cellSize *= 2;
+        }
+        int rows = span(minLat, maxLat, cellSize);
+        int cols = span(minLon, maxLon, cellSize);
+
+        // Counting sort of point indices by cell (CSR layout): cellPoints[cellStart[c]..cellStart[c+1])
+        int[] cellOf = new int[n];
+        int[] cellStart = new int[rows * cols + 1];
+        for (int i = 0; i < n; i++) {
+            int row = Math.min((int) ((latitudes[i] - minLat) / cellSize), rows - 1);
+            int col = Math.min((int) ((longitudes[i] - minLon) / cellSize), cols - 1);
+            cellOf[i] = row * cols + col;
+            cellStart[cellOf[i] + 1]++;
+        }
+        for (int c = 0; c < rows * cols; c++) {
+            cellStart[c + 1] += cellStart[c];
+        }
+        int[] fill = Arrays.copyOf(cellStart, rows * cols);
+        int[] cellPoints = new int[n];
+        for (int i = 0; i < n; i++) {
+            cellPoints[fill[cellOf[i]]++] = i;
+        }
+
+        double maxAbsLat = Math.max(Math.abs(minLat), Math.abs(maxLat));
+        return new SpatialGridIndex(latitudes, longitudes, planarX, planarY, cellSize, minLat, minLon, maxAbsLat,
+                rows, cols, cellStart, cellPoints);
+    }
+
+    private static int span(double min, double max, double cellSize) {
+        return (int) Math.floor((max - min) / cellSize) + 1;
+    }
+
+    public int size() {
+        return latitudes.length;
+    }
+
+    /**
+     * Returns the {@code k} points closest to the given coordinate, ordered by haversine distance
+     * and then by index so that equal distances have a stable order.
+     */
+    public Neighbours nearest(double latitude, double longitude, int k) {
+        return nearest(Search.of(latitude, longitude, k));
+    }
+
+    /**
+     * Returns up to {@code search.k()} points ordered by ranking key, then by index. The key is the
+     * haversine distance in km, or the squared planar distance in m^2 when the search has a planar
+     * origin. Keyset and radius bounds are applied during the walk; with a radius the walk is
+     * clipped to the cells of its bounding box, so its cost follows local density.
+     */
+    public Neighbours nearest(Search search) {
+        int n = latitudes.length;
+        if (search.k() <= 0 || n == 0) return Neighbours.EMPTY;
+        if (search.planar() && planarX == null) {
+            throw new IllegalStateException("Index was built without planar coordinates");
+        }
+
+        double latitude = search.latitude();
+        double longitude = search.longitude();
+        DistanceUtil.BoundingBox box = Double.isInfinite(search.maxDistanceKm())
+                ? null
+                : DistanceUtil.boundingBox(latitude, longitude, search.maxDistanceKm());
+        int rowMin = 0, rowMax = rows - 1, colMin = 0, colMax = cols - 1;
+        if (box != null) {
+            rowMin = Math.max(rowMin, (int) Math.floor((box.minLat() - minLat) / cellSize));
+            rowMax = Math.min(rowMax, (int) Math.floor((box.maxLat() - minLat) / cellSize));
+            colMin = Math.max(colMin, (int) Math.floor((box.minLon() - minLon) / cellSize));
+            colMax = Math.min(colMax, (int) Math.floor((box.maxLon() - minLon) / cellSize));
+            if (rowMin > rowMax || colMin > colMax) return Neighbours.EMPTY;
+        }
+
+        Walk walk = new Walk(search, box, new TopKHeap(Math.min(search.k(), n)));
+        int r0 = (int) Math.floor((latitude - minLat) / cellSize);
+        int c0 = (int) Math.floor((longitude - minLon) / cellSize);
+        double cosBound = Math.cos(Math.toRadians(Math.min(90, Math.max(maxAbsLat, Math.abs(latitude)))));
+        double radiusKey = search.planar() ? squaredMetres(search.maxDistanceKm() / PLANAR_SLACK) : search.maxDistanceKm();
+
+        for (int ring = 0; ; ring++) {
+            int rowLo = r0 - ring, rowHi = r0 + ring;
+            int colLo = c0 - ring, colHi = c0 + ring;
+            for (int row = Math.max(rowLo, rowMin); row <= Math.min(rowHi, rowMax); row++) {
+                if (row == rowLo || row == rowHi) {
+                    for (int col = Math.max(colLo, colMin); col <= Math.min(colHi, colMax); col++) {
+                        scanCell(row * cols + col, walk);
+                    }
+                } else {
+                    if (colLo >= colMin && colLo <= colMax) scanCell(row * cols + colLo, walk);
+                    if (colHi >= colMin && colHi <= colMax) scanCell(row * cols + colHi, walk);
+                }
+            }
+            if (rowLo <= rowMin && rowHi >= rowMax && colLo <= colMin && colHi >= colMax) break;
+            double outsideKm = distanceOutsideBlock(latitude, longitude, rowLo, rowHi, colLo, colHi, cosBound);
+            double outsideKey = search.planar() ? squaredMetres(outsideKm * PLANAR_SLACK) : outsideKm;
+            double bound = walk.heap().isFull() ? Math.min(walk.heap().worstDistance(), radiusKey) : radiusKey;
+            if (outsideKey > bound) break;
+        }
+
+        int[] indices = new int[walk.heap().size()];
+        double[] keys = new double[walk.heap().size()];
+        walk.heap().drainSorted(indices, keys);
+        return new Neighbours(indices, keys);
+    }
+
+    private void scanCell(int cell, Walk walk) {
+        Search search = walk.search();
+        for (int p = cellStart[cell]; p < cellStart[cell + 1]; p++) {
+            int i = cellPoints[p];
+            if (search.filter() != null && !search.filter().test(i)) continue;
+            if (walk.box() != null && !walk.box().contains(latitudes[i], longitudes[i])) continue;
+            double key;
+            if (search.planar()) {
+                double dx = planarX[i] - search.planarX();
+                double dy = planarY[i] - search.planarY();
+                key = dx * dx + dy * dy;
+                // Only candidates near the radius need the exact haversine check
+                if (walk.box() != null && key >= squaredMetres(search.maxDistanceKm() * PLANAR_SLACK)
+                        && DistanceUtil.haversine(search.latitude(), search.longitude(),
+                        latitudes[i], longitudes[i]) > search.maxDistanceKm()) continue;
+            } else {
+                key = DistanceUtil.haversine(search.latitude(), search.longitude(), latitudes[i], longitudes[i]);
+                if (key > search.maxDistanceKm()) continue;
+            }
+            if (key < search.afterKey() || (key == search.afterKey() && i <= search.afterIndex())) continue;
+            walk.heap().offer(key, i);
+        }
+    }
+
+    private static double squaredMetres(double km) {
+        double m = km * 1000;
+        return m * m;
+    }
+
+    /**
+     * Lower bound (km) on the distance from the query to any point outside the visited block of cells.
+     * Uses R * dLat for the latitude edges and the great-circle distance along the smallest parallel
+     * for the longitude edges, both of which never exceed the haversine distance.
+     */
+    private double distanceOutsideBlock(double latitude, double longitude, int rowLo, int rowHi,
+                                        int colLo, int colHi, double cosBound) {
+        double dLat = Math.min(latitude - (minLat + rowLo * cellSize), (minLat + (rowHi + 1) * cellSize) - latitude);
+        double dLon = Math.min(longitude - (minLon + colLo * cellSize), (minLon + (colHi + 1) * cellSize) - longitude);
+        double latKm = EARTH_RADIUS_KM * Math.toRadians(dLat);
+        double lonKm = 2 * EARTH_RADIUS_KM * Math.asin(cosBound * Math.sin(Math.toRadians(Math.min(dLon, 180)) / 2));
+        return Math.min(latKm, lonKm);
+    }
+
+    /**
+     * Parameters of a nearest search. Start from {@link #of(double, double, int)} and narrow it with
+     * {@link #after(double, int)} (keyset paging), {@link #within(double)} (radius in km),
+     * {@link #planar(double, double)} (rank by SVY21 distance from the projected origin) and
+     * {@link #where(IntPredicate)} (only point indices the predicate accepts).
+     */
+    public record Search(double latitude, double longitude, int k, double afterKey, int afterIndex,
+                         double maxDistanceKm, boolean planar, double planarX, double planarY, IntPredicate filter) {
+
+        public static Search of(double latitude, double longitude, int k) {
+            return new Search(latitude, longitude, k, Double.NEGATIVE_INFINITY, -1,
+                    Double.POSITIVE_INFINITY, false, 0, 0, null);
+        }
+
+        /** Only points ordered strictly after (key, index). */
+        public Search after(double key, int index) {
+            return new Search(latitude, longitude, k, key, index, maxDistanceKm, planar, planarX, planarY, filter);
+        }
+
+        public Search within(double maxDistanceKm) {
+            return new Search(latitude, longitude, k, afterKey, afterIndex, maxDistanceKm, planar, planarX, planarY,
+                    filter);
+        }
+
+        public Search planar(double originX, double originY) {
+            return new Search(latitude, longitude, k, afterKey, afterIndex, maxDistanceKm, true, originX, originY,
+                    filter);
+        }
+
+        public Search where(IntPredicate filter) {
+            return new Search(latitude, longitude, k, afterKey, afterIndex, maxDistanceKm, planar, planarX, planarY,
+                    filter);
+        }
+    }
+
+    /** Point indices with their ranking keys, closest first. */
+    public record Neighbours(int[] indices, double[] keys) {
+        static final Neighbours EMPTY = new Neighbours(new int[0], new double[0]);
+
+        public int size() {
+            return indices.length;
+        }
+    }
+
+    private record Walk(Search search, DistanceUtil.BoundingBox box, TopKHeap heap) {}
+}
@@ -0,0 +1,86 @@
+package com.wego.carpark.utils;
+
+import java.util.function.LongConsumer;
+
+/**
+ * Immutable set of (threshold, subscription id) pairs held as parallel primitive arrays sorted by
+ * threshold, so the subscriptions crossed by a change from one value to another are found with two
+ * binary searches and visited without scanning the rest. Adding or removing a subscription copies the
+ * arrays; lookups happen on every refresh and subscriptions change rarely.
+ */
+public final class ThresholdIndex {
+    private static final ThresholdIndex EMPTY = new ThresholdIndex(new int[0], new long[0]);
+
+    private final int[] thresholds;
+    private final long[] ids;
+
+    private ThresholdIndex(int[] thresholds, long[] ids) {
+        this.thresholds = thresholds;
+        this.ids = ids;
+    }
+
+    public static ThresholdIndex empty() {
+        return EMPTY;
+    }
+
+    public int size() {
+        return ids.length;
+    }
+
+    /** Copy with the given pair added after any pairs of the same threshold. */
+    public ThresholdIndex with(int threshold, long id) {
+        int n = ids.length;
+        int position = lowerBound(threshold + 1L);
+        int[] newThresholds = new int[n + 1];
+        long[] newIds = new long[n + 1];
+        System.arraycopy(thresholds, 0, newThresholds, 0, position);
+        System.arraycopy(ids, 0, newIds, 0, position);
+        newThresholds[position] = threshold;
+        newIds[position] = id;
+        System.arraycopy(thresholds, position, newThresholds, position + 1, n - position);
+        System.arraycopy(ids, position, newIds, position + 1, n - position);
+        return new ThresholdIndex(newThresholds, newIds);
+    }
+
+    /** Copy without the given id; this index itself when the id is absent. */
+    public ThresholdIndex without(long id) {
+        for (int i = 0; i < ids.length; i++) {
+            if (ids[i] != id) continue;
+            if (ids.length == 1) return EMPTY;
+            int[] newThresholds = new int[ids.length - 1];
+            long[] newIds = new long[ids.length - 1];
+            System.arraycopy(thresholds, 0, newThresholds, 0, i);
+            System.arraycopy(ids, 0, newIds, 0, i);
+            System.arraycopy(thresholds, i + 1, newThresholds, i, ids.length - i - 1);
+            System.arraycopy(ids, i + 1, newIds, i, ids.length - i - 1);
+            return new ThresholdIndex(newThresholds, newIds);
+        }
+        return this;
+    }
+
+    /**
+     * Calls {@code action} with the id of every pair whose threshold lies in
+     * {@code [fromInclusive, toExclusive)}, in ascending threshold order. Returns the number visited.
+     */
+    public int forEachInRange(long fromInclusive, long toExclusive, LongConsumer action) {
+        if (fromInclusive >= toExclusive) return 0;
+        int from = lowerBound(fromInclusive);
+        int to = lowerBound(toExclusive);
+        for (int i = from; i < to; i++) {
+            action.accept(ids[i]);
+        }
+        return to - from;
+    }
+
+    // First position whose threshold is >= value
+    private int lowerBound(long value) {
+        int low = 0;
+        int high = thresholds.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (thresholds[mid] < value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+}
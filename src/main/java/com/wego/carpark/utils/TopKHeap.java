@@ -0,0 +1,93 @@
+package com.wego.carpark.utils;
+
+/**
+ * Bounded max-heap of (distance, index) pairs backed by primitive arrays. Keeps the
+ * {@code capacity} smallest distances seen so far without boxing or per-candidate allocation;
+ * equal distances are ordered by index so results are deterministic.
+ */
+public final class TopKHeap {
+    private final double[] distances;
+    private final int[] indices;
+    private int size;
+
+    public TopKHeap(int capacity) {
+        if (capacity < 0) {
+            throw new IllegalArgumentException("Capacity must not be negative");
+        }
+        this.distances = new double[capacity];
+        this.indices = new int[capacity];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isFull() {
+        return size == distances.length;
+    }
+
+    /** Largest distance currently kept; only meaningful when the heap is not empty. */
+    public double worstDistance() {
+        return distances[0];
+    }
+
+    /** Returns {@code true} if the candidate was kept. */
+    public boolean offer(double distance, int index) {
+        if (size < distances.length) {
+            int pos = size++;
+            while (pos > 0) {
+                int parent = (pos - 1) >>> 1;
+                if (!worse(distance, index, distances[parent], indices[parent])) break;
+                distances[pos] = distances[parent];
+                indices[pos] = indices[parent];
+                pos = parent;
+            }
+            distances[pos] = distance;
+            indices[pos] = index;
+            return true;
+        }
+        if (size == 0 || !worse(distances[0], indices[0], distance, index)) return false;
+        siftDown(0, distance, index, size);
+        return true;
+    }
+
+    /**
+     * Empties the heap into the given arrays in ascending order and returns the number of entries.
+     * The arrays must hold at least {@link #size()} elements.
+     */
+    public int drainSorted(int[] outIndices, double[] outDistances) {
+        int n = size;
+        // In-place heap sort: repeatedly move the current maximum to the end
+        for (int end = n - 1; end > 0; end--) {
+            double maxDistance = distances[0];
+            int maxIndex = indices[0];
+            siftDown(0, distances[end], indices[end], end);
+            distances[end] = maxDistance;
+            indices[end] = maxIndex;
+        }
+        System.arraycopy(indices, 0, outIndices, 0, n);
+        System.arraycopy(distances, 0, outDistances, 0, n);
+        size = 0;
+        return n;
+    }
+
+    private void siftDown(int pos, double distance, int index, int limit) {
+        while (true) {
+            int child = 2 * pos + 1;
+            if (child >= limit) break;
+            if (child + 1 < limit && worse(distances[child + 1], indices[child + 1], distances[child], indices[child])) {
+                child++;
+            }
+            if (!worse(distances[child], indices[child], distance, index)) break;
+            distances[pos] = distances[child];
+            indices[pos] = indices[child];
+            pos = child;
+        }
+        distances[pos] = distance;
+        indices[pos] = index;
+    }
+
+    private static boolean worse(double d1, int i1, double d2, int i2) {
+        return d1 > d2 || (d1 == d2 && i1 > i2);
+    }
+}
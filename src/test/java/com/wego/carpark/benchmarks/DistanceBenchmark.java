@@ -0,0 +1,78 @@
+package com.wego.carpark.benchmarks;
+
+import com.wego.carpark.utils.CoordinateConverter;
+import com.wego.carpark.utils.SpatialGridIndex;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares haversine ranking against planar SVY21 ranking on the grid index. The planar variant
+ * includes projecting the query origin, as the service does per request. Run like
+ * {@link NearestSearchBenchmark}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DistanceBenchmark {
+
+    @Param({"2200", "20000"})
+    private int carParks;
+
+    @Param({"10", "100"})
+    private int k;
+
+    private SpatialGridIndex index;
+    private double[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        double[] latitudes = new double[carParks];
+        double[] longitudes = new double[carParks];
+        double[] svy21X = new double[carParks];
+        double[] svy21Y = new double[carParks];
+        for (int i = 0; i < carParks; i++) {
+            latitudes[i] = 1.24 + random.nextDouble() * 0.23;
+            longitudes[i] = 103.62 + random.nextDouble() * 0.38;
+            CoordinateConverter.Svy21 svy21 = CoordinateConverter.wgs84ToSvy21(latitudes[i], longitudes[i]);
+            svy21X[i] = svy21.x();
+            svy21Y[i] = svy21.y();
+        }
+        index = SpatialGridIndex.build(latitudes, longitudes, svy21X, svy21Y, 0.01);
+
+        queries = new double[256][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[]{1.24 + random.nextDouble() * 0.23, 103.62 + random.nextDouble() * 0.38};
+        }
+    }
+
+    @Benchmark
+    public SpatialGridIndex.Neighbours haversine() {
+        double[] q = queries[next++ & 255];
+        return index.nearest(SpatialGridIndex.Search.of(q[0], q[1], k));
+    }
+
+    @Benchmark
+    public SpatialGridIndex.Neighbours planar() {
+        double[] q = queries[next++ & 255];
+        CoordinateConverter.Svy21 origin = CoordinateConverter.wgs84ToSvy21(q[0], q[1]);
+        return index.nearest(SpatialGridIndex.Search.of(q[0], q[1], k).planar(origin.x(), origin.y()));
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(DistanceBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
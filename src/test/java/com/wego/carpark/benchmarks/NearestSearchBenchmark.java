@@ -0,0 +1,136 @@
+package com.wego.carpark.benchmarks;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.dto.responses.CarParkResponse;
+import com.wego.carpark.entities.CarPark;
+import com.wego.carpark.entities.CarParkAvailability;
+import com.wego.carpark.repositories.AvailableCarPark;
+import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.services.CarParkIndexService;
+import com.wego.carpark.services.CarParkService;
+import com.wego.carpark.services.NearestCarParkCache;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import com.wego.carpark.utils.DistanceUtil;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Compares the original "build every DTO, sort, subList" nearest search against the
+ * grid index with bounded top-K selection. Run with the GC profiler to see allocation per call:
+ * <pre>
+ * ./mvnw test-compile dependency:build-classpath -Dmdep.outputFile=target/cp.txt -Dmdep.includeScope=test
+ * java -cp target/test-classes:target/classes:$(cat target/cp.txt) com.wego.carpark.benchmarks.NearestSearchBenchmark
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NearestSearchBenchmark {
+
+    @Param({"2200", "20000"})
+    private int carParks;
+
+    @Param({"1", "10"})
+    private int page;
+
+    private final int perPage = 10;
+
+    private List<CarParkAvailability> availabilities;
+    private CarParkService carParkService;
+    private double[][] queries;
+    private int next;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        availabilities = new ArrayList<>(carParks);
+        for (int i = 0; i < carParks; i++) {
+            CarPark carPark = new CarPark();
+            carPark.setId("CP" + i);
+            carPark.setAddress("BLK " + i);
+            carPark.setLatitude(1.24 + random.nextDouble() * 0.23);
+            carPark.setLongitude(103.62 + random.nextDouble() * 0.38);
+            carPark.setTotalLots(100 + random.nextInt(400));
+            CarParkAvailability availability = new CarParkAvailability();
+            availability.setCarPark(carPark);
+            availability.setAvailableLots(1 + random.nextInt(100));
+            availabilities.add(availability);
+        }
+
+        CarParkAvailabilityRepository repository = mock(CarParkAvailabilityRepository.class);
+        when(repository.findAvailableCarParks()).thenReturn(availabilities.stream()
+                .map(a -> new AvailableCarPark(a.getCarPark().getId(), a.getCarPark().getAddress(),
+                        a.getCarPark().getLatitude(), a.getCarPark().getLongitude(), a.getLotType(),
+                        a.getCarPark().getTotalLots(), a.getAvailableLots(), null, null))
+                .toList());
+        CarparkProperties properties = new CarparkProperties();
+        properties.getCache().setEnabled(false); // measure the search, not cache hits
+        CarParkIndexService indexService = new CarParkIndexService(repository, properties);
+        indexService.rebuild();
+        carParkService = new CarParkService(indexService, repository, properties,
+                new NearestCarParkCache(properties, new SimpleMeterRegistry()));
+
+        queries = new double[256][];
+        for (int i = 0; i < queries.length; i++) {
+            queries[i] = new double[]{1.24 + random.nextDouble() * 0.23, 103.62 + random.nextDouble() * 0.38};
+        }
+    }
+
+    @Benchmark
+    public List<CarParkResponse> fullSort() {
+        double[] q = queries[next++ & 255];
+        return fullSort(availabilities, q[0], q[1], page, perPage);
+    }
+
+    @Benchmark
+    public List<CarParkResponse> gridTopK() {
+        double[] q = queries[next++ & 255];
+        return carParkService.findNearestCarParks(q[0], q[1], page, perPage);
+    }
+
+    /** The pre-index implementation of CarParkService.findNearestCarParks, kept as the baseline. */
+    private static List<CarParkResponse> fullSort(List<CarParkAvailability> availableList,
+                                                  double latitude, double longitude, int page, int perPage) {
+        List<CarParkResponse> dtos = availableList.stream()
+                .map(availability -> {
+                    CarPark carPark = availability.getCarPark();
+                    double distance = DistanceUtil.haversine(latitude, longitude, carPark.getLatitude(), carPark.getLongitude());
+                    return CarParkResponse.builder()
+                            .address(carPark.getAddress())
+                            .latitude(carPark.getLatitude())
+                            .longitude(carPark.getLongitude())
+                            .totalLots(carPark.getTotalLots())
+                            .availableLots(availability.getAvailableLots())
+                            .distance(distance)
+                            .build();
+                }).sorted(Comparator.comparingDouble(CarParkResponse::getDistance)).toList();
+
+        int fromIndex = (page - 1) * perPage;
+        int toIndex = Math.min(fromIndex + perPage, dtos.size());
+        if (fromIndex > toIndex) return Collections.emptyList();
+        return dtos.subList(fromIndex, toIndex);
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(NearestSearchBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build()).run();
+    }
+}
@@ -0,0 +1,85 @@
+package com.wego.carpark.config;
+
+import com.wego.carpark.repositories.AvailabilityKey;
+import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Starts from the schema the app created before availability was stored per lot type, with a unique
+ * constraint and a unique index on {@code car_park_id} alone, and lets Hibernate update it afterwards as
+ * {@code ddl-auto: update} does. Skipped when Docker is not available.
+ */
+@DataJpaTest(properties = "spring.jpa.hibernate.ddl-auto=update")
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AvailabilitySchemaMigration.class)
+@Testcontainers(disabledWithoutDocker = true)
+class AvailabilitySchemaMigrationPostgresTest {
+    private static final Instant T0 = Instant.parse("2025-08-20T10:05:00Z");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16")
+            .withInitScript("db/baseline-schema.sql");
+
+    @Autowired
+    private AvailabilitySchemaMigration migration;
+
+    @Autowired
+    private CarParkAvailabilityRepository carParkAvailabilityRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    @DisplayName("Should replace the single-column unique constraint and index with the lot type one")
+    void testMigrate_ReplacesUniqueOnCarParkId() {
+        // Then
+        assertEquals(List.of(AvailabilitySchemaMigration.UNIQUE_CAR_PARK_LOT_TYPE), jdbcTemplate.queryForList(
+                "SELECT conname FROM pg_constraint WHERE conrelid = 'car_park_availability'::regclass "
+                        + "AND contype = 'u'", String.class));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM pg_indexes WHERE indexname = 'uniq_cpa_carparkid'", Integer.class));
+    }
+
+    @Test
+    @DisplayName("Should keep the existing row as car lots and accept another lot type for the same car park")
+    void testMigrate_AcceptsSecondLotType() {
+        // When
+        List<AvailabilityKey> changed = carParkAvailabilityRepository.upsertAll(new String[]{"TEST001", "TEST001"},
+                new String[]{"C", "Y"}, new int[]{100, 20}, new int[]{7, 4}, new Instant[]{T0, T0});
+
+        // Then
+        assertEquals(2, changed.size());
+        assertEquals(List.of(Map.of("lot_type", "C", "available_lots", 7),
+                        Map.of("lot_type", "Y", "available_lots", 4)),
+                jdbcTemplate.query("SELECT lot_type, available_lots FROM car_park_availability "
+                        + "WHERE car_park_id = 'TEST001' ORDER BY lot_type", (rs, rowNum) -> Map.of(
+                        "lot_type", rs.getString(1), "available_lots", rs.getInt(2))));
+    }
+
+    @Test
+    @DisplayName("Should do nothing when run again on a migrated schema")
+    void testMigrate_Idempotent() {
+        // Then
+        assertDoesNotThrow(migration::migrate);
+        assertEquals(1, jdbcTemplate.queryForObject("SELECT count(*) FROM pg_constraint WHERE conname = ?",
+                Integer.class, AvailabilitySchemaMigration.UNIQUE_CAR_PARK_LOT_TYPE));
+    }
+}
@@ -1,5 +1,6 @@
 package com.wego.carpark.controllers;
 
+import com.wego.carpark.dto.requests.NearestCarParksBatchRequest;
 import com.wego.carpark.dto.requests.NearestCarParksRequest;
 import com.wego.carpark.dto.responses.CarParkResponse;
 import com.wego.carpark.services.CarParkService;
@@ -61,12 +62,8 @@ class CarParkControllerTest {
 
         List<CarParkResponse> expectedResponse = Arrays.asList(carPark1, carPark2);
 
-        when(carParkService.findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        )).thenReturn(expectedResponse);
+        when(carParkService.findNearestCarParks(request))
+                .thenReturn(new CarParkService.NearestPage(expectedResponse, null));
 
         // When
         ResponseEntity<?> response = carParkController.getNearestCarParks(request);
@@ -74,12 +71,7 @@ class CarParkControllerTest {
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(expectedResponse, response.getBody());
-        verify(carParkService).findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        );
+        verify(carParkService).findNearestCarParks(request);
     }
 
     @Test
@@ -92,12 +84,8 @@ class CarParkControllerTest {
         request.setPage(1);
         request.setPerPage(10);
 
-        when(carParkService.findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        )).thenReturn(Collections.emptyList());
+        when(carParkService.findNearestCarParks(request))
+                .thenReturn(new CarParkService.NearestPage(Collections.emptyList(), null));
 
         // When
         ResponseEntity<?> response = carParkController.getNearestCarParks(request);
@@ -105,12 +93,7 @@ class CarParkControllerTest {
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(Collections.emptyList(), response.getBody());
-        verify(carParkService).findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        );
+        verify(carParkService).findNearestCarParks(request);
     }
 
     @Test
@@ -134,12 +117,8 @@ class CarParkControllerTest {
 
         List<CarParkResponse> expectedResponse = Arrays.asList(carPark);
 
-        when(carParkService.findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        )).thenReturn(expectedResponse);
+        when(carParkService.findNearestCarParks(request))
+                .thenReturn(new CarParkService.NearestPage(expectedResponse, null));
 
         // When
         ResponseEntity<?> response = carParkController.getNearestCarParks(request);
@@ -147,12 +126,7 @@ class CarParkControllerTest {
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(expectedResponse, response.getBody());
-        verify(carParkService).findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        );
+        verify(carParkService).findNearestCarParks(request);
     }
 
     @Test
@@ -167,12 +141,8 @@ class CarParkControllerTest {
 
         List<CarParkResponse> expectedResponse = Collections.emptyList();
 
-        when(carParkService.findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        )).thenReturn(expectedResponse);
+        when(carParkService.findNearestCarParks(request))
+                .thenReturn(new CarParkService.NearestPage(expectedResponse, null));
 
         // When
         ResponseEntity<?> response = carParkController.getNearestCarParks(request);
@@ -180,11 +150,67 @@ class CarParkControllerTest {
         // Then
         assertEquals(HttpStatus.OK, response.getStatusCode());
         assertEquals(expectedResponse, response.getBody());
-        verify(carParkService).findNearestCarParks(
-                request.getLatitude(),
-                request.getLongitude(),
-                request.getPage(),
-                request.getPerPage()
-        );
+        verify(carParkService).findNearestCarParks(request);
+    }
+
+    @Test
+    @DisplayName("Should expose the next page cursor as a response header")
+    void testGetNearestCarParks_NextCursorHeader() {
+        // Given
+        NearestCarParksRequest request = new NearestCarParksRequest();
+        request.setLatitude(1.3521);
+        request.setLongitude(103.8198);
+        request.setCursor("previous-cursor");
+
+        when(carParkService.findNearestCarParks(request))
+                .thenReturn(new CarParkService.NearestPage(Collections.emptyList(), "next-cursor"));
+
+        // When
+        ResponseEntity<?> response = carParkController.getNearestCarParks(request);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals("next-cursor", response.getHeaders().getFirst(CarParkController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    @DisplayName("Should omit the cursor header on the last page")
+    void testGetNearestCarParks_NoCursorOnLastPage() {
+        // Given
+        NearestCarParksRequest request = new NearestCarParksRequest();
+        request.setLatitude(1.3521);
+        request.setLongitude(103.8198);
+
+        when(carParkService.findNearestCarParks(request))
+                .thenReturn(new CarParkService.NearestPage(Collections.emptyList(), null));
+
+        // When
+        ResponseEntity<?> response = carParkController.getNearestCarParks(request);
+
+        // Then
+        assertFalse(response.getHeaders().containsKey(CarParkController.NEXT_CURSOR_HEADER));
+    }
+
+    @Test
+    @DisplayName("Should return one result list per batch origin")
+    void testGetNearestCarParksBatch() {
+        // Given
+        NearestCarParksBatchRequest.Origin origin = new NearestCarParksBatchRequest.Origin();
+        origin.setLatitude(1.3521);
+        origin.setLongitude(103.8198);
+        origin.setK(1);
+        NearestCarParksBatchRequest request = new NearestCarParksBatchRequest();
+        request.setOrigins(List.of(origin, origin));
+
+        List<List<CarParkResponse>> expectedResponse = List.of(Collections.emptyList(), Collections.emptyList());
+        when(carParkService.findNearestCarParksBatch(request.getOrigins())).thenReturn(expectedResponse);
+
+        // When
+        ResponseEntity<?> response = carParkController.getNearestCarParksBatch(request);
+
+        // Then
+        assertEquals(HttpStatus.OK, response.getStatusCode());
+        assertEquals(expectedResponse, response.getBody());
+        verify(carParkService).findNearestCarParksBatch(request.getOrigins());
     }
 }
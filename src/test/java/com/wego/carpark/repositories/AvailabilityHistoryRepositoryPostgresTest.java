@@ -0,0 +1,87 @@
+package com.wego.carpark.repositories;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs the hourly rollup against a real Postgres, since it relies on partitions and {@code ON CONFLICT}.
+ * Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Import(AvailabilityHistoryRepository.class)
+@Testcontainers(disabledWithoutDocker = true)
+class AvailabilityHistoryRepositoryPostgresTest {
+    private static final LocalDate DAY = LocalDate.parse("2025-08-10");
+    private static final Instant TEN = Instant.parse("2025-08-10T10:00:00Z");
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Autowired
+    private AvailabilityHistoryRepository historyRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        historyRepository.ensureSchema();
+    }
+
+    @Test
+    @DisplayName("Should merge late default-partition rows into an hour that was already rolled up")
+    void testRollup_MergesLateRows() {
+        // Given - the day's own partition was rolled up and dropped
+        historyRepository.createPartition(DAY);
+        insert(new int[]{10, 20}, TEN.plusSeconds(60), TEN.plusSeconds(120));
+        historyRepository.rollupAndDropPartition(DAY);
+
+        // When - a late row for the same hour lands in the default partition and is rolled up
+        insert(new int[]{4}, TEN.plusSeconds(180));
+        historyRepository.rollupAndDeleteDefaultDay(DAY);
+
+        // Then
+        assertEquals(Map.of("min", 4, "avg", 34 / 3.0, "max", 20, "samples", 3), hour(TEN));
+        assertEquals(List.of(), historyRepository.findPartitionDays());
+        assertEquals(List.of(), historyRepository.findDefaultDaysBefore(TEN.plusSeconds(86_400)));
+    }
+
+    private void insert(int[] availableLots, Instant... recordedAt) {
+        String[] ids = new String[availableLots.length];
+        String[] lotTypes = new String[availableLots.length];
+        Arrays.fill(ids, "A1");
+        Arrays.fill(lotTypes, "C");
+        historyRepository.insertAll(ids, lotTypes, availableLots, recordedAt);
+    }
+
+    private Map<String, Object> hour(Instant hour) {
+        return jdbcTemplate.queryForObject("""
+                SELECT min_available, avg_available, max_available, samples FROM car_park_availability_hourly
+                WHERE car_park_id = 'A1' AND lot_type = 'C' AND hour = ?""", (rs, rowNum) -> Map.of(
+                "min", rs.getInt(1),
+                "avg", rs.getDouble(2),
+                "max", rs.getInt(3),
+                "samples", rs.getInt(4)), Timestamp.from(hour));
+    }
+}
@@ -0,0 +1,144 @@
+package com.wego.carpark.repositories;
+
+import com.wego.carpark.entities.CarPark;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the array upsert against a real Postgres, since H2 has neither {@code unnest} over typed arrays nor
+ * {@code ON CONFLICT}. Skipped when Docker is not available.
+ */
+@DataJpaTest
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+class CarParkAvailabilityRepositoryPostgresTest {
+    private static final Instant T0 = Instant.parse("2025-08-20T10:00:00Z");
+    private static final Comparator<AvailabilityKey> KEY_ORDER =
+            Comparator.comparing(AvailabilityKey::carParkId).thenComparing(AvailabilityKey::lotType);
+
+    @Container
+    @ServiceConnection
+    static PostgreSQLContainer<?> postgres = new PostgreSQLContainer<>("postgres:16");
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CarParkAvailabilityRepository carParkAvailabilityRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        for (String id : List.of("TEST001", "TEST002")) {
+            CarPark carPark = new CarPark();
+            carPark.setId(id);
+            carPark.setAddress("Test Car Park " + id);
+            carPark.setLatitude(1.3521);
+            carPark.setLongitude(103.8198);
+            carPark.setTotalLots(100);
+            entityManager.persist(carPark);
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    @DisplayName("Should insert every row of the arrays in one statement and return them")
+    void testUpsertAll_Inserts() {
+        // When
+        List<AvailabilityKey> changed = upsert(new String[]{"TEST001", "TEST001", "TEST002"},
+                new String[]{"C", "Y", "C"}, new int[]{100, 20, 50}, new int[]{10, 4, 0}, T0);
+
+        // Then
+        assertEquals(List.of(new AvailabilityKey("TEST001", "C"), new AvailabilityKey("TEST001", "Y"),
+                new AvailabilityKey("TEST002", "C")), changed.stream().sorted(KEY_ORDER).toList());
+        assertEquals(Map.of("total_lots", 20, "available_lots", 4, "last_updated", T0), row("TEST001", "Y"));
+    }
+
+    @Test
+    @DisplayName("Should update a row with a newer reading and never overwrite it with an older one")
+    void testUpsertAll_NewerWinsOverStale() {
+        // Given
+        upsert("TEST001", 10, T0);
+
+        // When
+        List<AvailabilityKey> newer = upsert("TEST001", 7, T0.plusSeconds(300));
+        List<AvailabilityKey> stale = upsert("TEST001", 3, T0.plusSeconds(120));
+
+        // Then
+        assertEquals(List.of(new AvailabilityKey("TEST001", "C")), newer);
+        assertTrue(stale.isEmpty());
+        assertEquals(Map.of("total_lots", 100, "available_lots", 7, "last_updated", T0.plusSeconds(300)),
+                row("TEST001", "C"));
+    }
+
+    @Test
+    @DisplayName("Should not rewrite a newer reading with the same counts")
+    void testUpsertAll_SameCountsNotWritten() {
+        // Given
+        List<AvailabilityKey> first = upsert("TEST001", 5, T0);
+        String tuple = jdbcTemplate.queryForObject("SELECT ctid::text FROM car_park_availability "
+                + "WHERE car_park_id = 'TEST001'", String.class);
+
+        // When
+        List<AvailabilityKey> sameCounts = upsert("TEST001", 5, T0.plusSeconds(300));
+
+        // Then - no new row version was written and last_updated stays at the last change
+        assertEquals(List.of(new AvailabilityKey("TEST001", "C")), first);
+        assertTrue(sameCounts.isEmpty());
+        assertEquals(tuple, jdbcTemplate.queryForObject("SELECT ctid::text FROM car_park_availability "
+                + "WHERE car_park_id = 'TEST001'", String.class));
+        assertEquals(Map.of("total_lots", 100, "available_lots", 5, "last_updated", T0), row("TEST001", "C"));
+    }
+
+    @Test
+    @DisplayName("Should return nothing for empty arrays and reject arrays of different lengths")
+    void testUpsertAll_Arrays() {
+        // Then
+        assertTrue(upsert(new String[0], new String[0], new int[0], new int[0], T0).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> carParkAvailabilityRepository.upsertAll(
+                new String[]{"TEST001"}, new String[0], new int[]{100}, new int[]{10}, new Instant[]{T0}));
+    }
+
+    private List<AvailabilityKey> upsert(String carParkId, int availableLots, Instant lastUpdated) {
+        return upsert(new String[]{carParkId}, new String[]{"C"}, new int[]{100}, new int[]{availableLots},
+                lastUpdated);
+    }
+
+    private List<AvailabilityKey> upsert(String[] ids, String[] lotTypes, int[] totalLots, int[] availableLots,
+                                         Instant lastUpdated) {
+        Instant[] timestamps = new Instant[ids.length];
+        Arrays.fill(timestamps, lastUpdated);
+        return carParkAvailabilityRepository.upsertAll(ids, lotTypes, totalLots, availableLots, timestamps);
+    }
+
+    private Map<String, Object> row(String carParkId, String lotType) {
+        return jdbcTemplate.queryForObject("""
+                SELECT total_lots, available_lots, last_updated FROM car_park_availability
+                WHERE car_park_id = ? AND lot_type = ?""", (rs, rowNum) -> Map.of(
+                "total_lots", rs.getInt(1),
+                "available_lots", rs.getInt(2),
+                "last_updated", rs.getTimestamp(3).toInstant()), carParkId, lotType);
+    }
+}
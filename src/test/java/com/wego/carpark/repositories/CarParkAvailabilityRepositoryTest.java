@@ -102,6 +102,63 @@ class CarParkAvailabilityRepositoryTest {
         assertFalse(availableCarParks.stream().anyMatch(av -> av.getAvailableLots() == 0));
     }
 
+    @Test
+    @DisplayName("Should project available car parks with their car park columns")
+    void testFindAvailableCarParks() {
+        // Given
+        testCarPark.setSvy21X(30000.0);
+        testCarPark.setSvy21Y(35000.0);
+        entityManager.persistAndFlush(testCarPark);
+        entityManager.persistAndFlush(testAvailability);
+
+        CarPark fullCarPark = new CarPark();
+        fullCarPark.setId("TEST002");
+        fullCarPark.setAddress("Full Car Park");
+        fullCarPark.setLatitude(1.3522);
+        fullCarPark.setLongitude(103.8199);
+        fullCarPark.setTotalLots(50);
+        entityManager.persistAndFlush(fullCarPark);
+
+        CarParkAvailability full = new CarParkAvailability();
+        full.setCarPark(fullCarPark);
+        full.setAvailableLots(0);
+        entityManager.persistAndFlush(full);
+        entityManager.clear();
+
+        // When
+        List<AvailableCarPark> rows = carParkAvailabilityRepository.findAvailableCarParks();
+
+        // Then
+        assertEquals(List.of(new AvailableCarPark("TEST001", "Test Car Park Address", 1.3521, 103.8198,
+                "C", 100, 10, 30000.0, 35000.0)), rows);
+    }
+
+    @Test
+    @DisplayName("Should project one row per lot type with the lot type's own total when reported")
+    void testFindAvailableCarParks_PerLotType() {
+        // Given
+        entityManager.persistAndFlush(testCarPark);
+        entityManager.persistAndFlush(testAvailability);
+
+        CarParkAvailability motorcycles = new CarParkAvailability();
+        motorcycles.setCarPark(testCarPark);
+        motorcycles.setLotType("Y");
+        motorcycles.setTotalLots(20);
+        motorcycles.setAvailableLots(4);
+        entityManager.persistAndFlush(motorcycles);
+        entityManager.clear();
+
+        // When
+        List<AvailableCarPark> rows = carParkAvailabilityRepository.findAvailableCarParks();
+
+        // Then
+        assertEquals(2, rows.size());
+        assertTrue(rows.contains(new AvailableCarPark("TEST001", "Test Car Park Address", 1.3521, 103.8198,
+                "C", 100, 10, null, null)));
+        assertTrue(rows.contains(new AvailableCarPark("TEST001", "Test Car Park Address", 1.3521, 103.8198,
+                "Y", 20, 4, null, null)));
+    }
+
     @Test
     @DisplayName("Should return empty list when no car parks have available lots")
     void testFindByAvailableLotsGreaterThan_NoAvailableLots() {
@@ -156,4 +156,25 @@ class CarParkRepositoryTest {
         assertEquals(12345.67, savedCarPark.getSvy21X());
         assertEquals(23456.78, savedCarPark.getSvy21Y());
     }
+
+    @Test
+    @DisplayName("Should list every car park id with its total lots")
+    void testFindAllTotalLots() {
+        // Given
+        entityManager.persistAndFlush(testCarPark);
+        CarPark withoutTotal = new CarPark();
+        withoutTotal.setId("TEST002");
+        withoutTotal.setAddress("Test Car Park 2");
+        withoutTotal.setLatitude(1.3522);
+        withoutTotal.setLongitude(103.8199);
+        entityManager.persistAndFlush(withoutTotal);
+
+        // When
+        var totals = carParkRepository.findAllTotalLots();
+
+        // Then
+        assertEquals(2, totals.size());
+        assertTrue(totals.contains(new CarParkTotalLots("TEST001", 100)));
+        assertTrue(totals.contains(new CarParkTotalLots("TEST002", 0)));
+    }
 }
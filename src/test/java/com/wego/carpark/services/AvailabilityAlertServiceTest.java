@@ -0,0 +1,147 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.dto.requests.AlertSubscriptionRequest;
+import com.wego.carpark.events.AvailabilityAlert;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.repositories.ChangedAvailability;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailabilityAlertServiceTest {
+    private static final Instant NOW = Instant.parse("2025-08-20T10:00:00Z");
+
+    @Mock
+    private CarParkAvailabilityRepository availabilityRepository;
+
+    @Mock
+    private CarParkRegistry carParkRegistry;
+
+    private CarparkProperties carparkProperties;
+    private InMemoryAlertSink sink;
+    private AvailabilityAlertService alertService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        carparkProperties = new CarparkProperties();
+        sink = new InMemoryAlertSink();
+        alertService = new AvailabilityAlertService(availabilityRepository, carParkRegistry, List.of(sink),
+                carparkProperties, new SimpleMeterRegistry());
+        when(carParkRegistry.isKnown(any())).thenAnswer(invocation -> !"ZZ".equals(invocation.getArgument(0)));
+        lots("A1", 20);
+    }
+
+    @Test
+    @DisplayName("Should fire only the thresholds crossed between the previous and the new value")
+    void testCrossings() {
+        // Given
+        long below10 = subscribe("A1", 10, AvailabilityAlert.Direction.BELOW).id();
+        long below5 = subscribe("A1", 5, AvailabilityAlert.Direction.BELOW).id();
+        subscribe("A1", 15, AvailabilityAlert.Direction.ABOVE);
+        long above8 = subscribe("A1", 8, AvailabilityAlert.Direction.ABOVE).id();
+
+        // When - 20 -> 10 crosses nothing, 10 -> 9 crosses "below 10", 9 -> 9 is no change
+        refresh("A1", 10);
+        refresh("A1", 9);
+        refresh("A1", 9);
+        // 9 -> 4 crosses "below 5", 4 -> 12 crosses "above 8"
+        refresh("A1", 4);
+        refresh("A1", 12);
+
+        // Then
+        List<AvailabilityAlert> alerts = sink.alerts();
+        assertEquals(List.of(below10, below5, above8), alerts.stream().map(AvailabilityAlert::subscriptionId).toList());
+        assertEquals(10, alerts.get(0).previousLots());
+        assertEquals(9, alerts.get(0).availableLots());
+        assertEquals(NOW, alerts.get(0).lastUpdated());
+    }
+
+    @Test
+    @DisplayName("Should not read back car parks nobody watches")
+    void testUnwatchedCarParks() {
+        // Given
+        subscribe("A1", 10, AvailabilityAlert.Direction.BELOW);
+
+        // When
+        alertService.onCarParkDataChanged(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.AVAILABILITY,
+                Set.of("B2")));
+
+        // Then - only the lookup that seeded the subscription
+        verify(availabilityRepository, times(1)).findChangedAvailability(any());
+        assertTrue(sink.alerts().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should stop alerting once unsubscribed")
+    void testUnsubscribe() {
+        // Given
+        long id = subscribe("A1", 10, AvailabilityAlert.Direction.BELOW).id();
+
+        // When
+        assertTrue(alertService.unsubscribe(id));
+        refresh("A1", 5);
+
+        // Then
+        assertFalse(alertService.unsubscribe(id));
+        assertTrue(alertService.find(id).isEmpty());
+        assertTrue(sink.alerts().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should reject unknown car parks and subscriptions over the limit")
+    void testLimits() {
+        // Given
+        carparkProperties.getAlerts().setMaxSubscriptions(1);
+        subscribe("A1", 10, AvailabilityAlert.Direction.BELOW);
+
+        // Then
+        assertTrue(alertService.subscribe(request("A1", 5, AvailabilityAlert.Direction.BELOW)).isEmpty());
+        assertThrows(IllegalArgumentException.class,
+                () -> alertService.subscribe(request("ZZ", 5, AvailabilityAlert.Direction.BELOW)));
+    }
+
+    private AvailabilityAlertService.Subscription subscribe(String carParkId, int threshold,
+                                                           AvailabilityAlert.Direction direction) {
+        return alertService.subscribe(request(carParkId, threshold, direction)).orElseThrow();
+    }
+
+    private static AlertSubscriptionRequest request(String carParkId, int threshold,
+                                                    AvailabilityAlert.Direction direction) {
+        AlertSubscriptionRequest request = new AlertSubscriptionRequest();
+        request.setCarParkId(carParkId);
+        request.setThreshold(threshold);
+        request.setDirection(direction);
+        return request;
+    }
+
+    private void refresh(String carParkId, int availableLots) {
+        lots(carParkId, availableLots);
+        alertService.onCarParkDataChanged(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.AVAILABILITY,
+                Set.of(carParkId)));
+    }
+
+    private void lots(String carParkId, int availableLots) {
+        when(availabilityRepository.findChangedAvailability(any())).thenReturn(List.of(
+                new ChangedAvailability(carParkId, "C", 1.30, 103.80, availableLots, NOW),
+                new ChangedAvailability(carParkId, "Y", 1.30, 103.80, 0, NOW)));
+    }
+}
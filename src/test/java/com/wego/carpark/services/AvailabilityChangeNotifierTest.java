@@ -0,0 +1,112 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.repositories.AvailabilityKey;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class AvailabilityChangeNotifierTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private JdbcTemplate jdbcTemplate;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    private CarparkProperties carparkProperties;
+    private AvailabilityChangeNotifier notifier;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        carparkProperties = new CarparkProperties();
+        notifier = new AvailabilityChangeNotifier(dataSource, jdbcTemplate, eventPublisher, carparkProperties);
+    }
+
+    @Test
+    @DisplayName("Should split large change sets into payloads under the size limit that decode back")
+    void testEncodeDecode() {
+        // Given
+        Set<AvailabilityKey> keys = new LinkedHashSet<>();
+        for (int i = 0; i < 2000; i++) {
+            keys.add(new AvailabilityKey(String.format("CP%04d", i), i % 3 == 0 ? "Y" : "C"));
+        }
+
+        // When
+        List<String> payloads = AvailabilityChangeNotifier.encode("node1", 42L, keys, 1000);
+
+        // Then
+        Set<AvailabilityKey> decoded = new HashSet<>();
+        for (String payload : payloads) {
+            assertTrue(payload.getBytes(StandardCharsets.UTF_8).length <= 1000);
+            AvailabilityChangeNotifier.Change change = AvailabilityChangeNotifier.decode(payload);
+            assertEquals("node1", change.nodeId());
+            assertEquals(42L, change.version());
+            decoded.addAll(change.changedLots());
+        }
+        assertTrue(payloads.size() > 1);
+        assertEquals(keys, decoded);
+        assertNull(AvailabilityChangeNotifier.decode("garbage"));
+        assertNull(AvailabilityChangeNotifier.decode("node1|x|A1:C"));
+        assertNull(AvailabilityChangeNotifier.decode("node1|42|A1"));
+    }
+
+    @Test
+    @DisplayName("Should send imports as a marker that decodes to an unknown scope")
+    void testNotifyImported() {
+        // Given
+        carparkProperties.getNotify().setEnabled(true);
+
+        // When
+        notifier.notifyImported();
+
+        // Then
+        ArgumentCaptor<Object> payload = ArgumentCaptor.forClass(Object.class);
+        verify(jdbcTemplate).query(anyString(), any(ResultSetExtractor.class), any(), payload.capture());
+        AvailabilityChangeNotifier.Change change = AvailabilityChangeNotifier.decode((String) payload.getValue());
+        assertTrue(change.isImport());
+        assertNull(change.changedLots());
+        assertFalse(AvailabilityChangeNotifier.decode("node1|42|A1:C").isImport());
+    }
+
+    @Test
+    @DisplayName("Should only notify when enabled")
+    void testNotifyChanged() {
+        // When
+        notifier.notifyChanged(1L, Set.of(new AvailabilityKey("A1", "C")));
+        carparkProperties.getNotify().setEnabled(true);
+        notifier.notifyChanged(1L, Set.of());
+        notifier.notifyChanged(1L, Set.of(new AvailabilityKey("A1", "C"), new AvailabilityKey("B2", "C")));
+
+        // Then
+        verify(jdbcTemplate, times(1)).query(anyString(), any(ResultSetExtractor.class), any(), any());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+}
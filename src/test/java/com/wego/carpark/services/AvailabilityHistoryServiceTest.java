@@ -0,0 +1,122 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.repositories.AvailabilityHistoryRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class AvailabilityHistoryServiceTest {
+
+    @Mock
+    private AvailabilityHistoryRepository historyRepository;
+
+    private CarparkProperties carparkProperties;
+    private AvailabilityHistoryService historyService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        carparkProperties = new CarparkProperties();
+        carparkProperties.getHistory().setEnabled(true);
+        carparkProperties.getHistory().setRawRetentionDays(7);
+        carparkProperties.getHistory().setHourlyRetentionDays(90);
+        carparkProperties.getHistory().setPartitionsAhead(2);
+        Clock clock = Clock.fixed(Instant.parse("2025-08-20T10:00:00Z"), ZoneOffset.UTC);
+        historyService = new AvailabilityHistoryService(historyRepository, carparkProperties, clock);
+    }
+
+    @Test
+    @DisplayName("Should create missing partitions ahead and roll up expired days before dropping them")
+    void testMaintain() {
+        // Given
+        LocalDate expired = LocalDate.parse("2025-08-12");
+        LocalDate kept = LocalDate.parse("2025-08-13");
+        LocalDate today = LocalDate.parse("2025-08-20");
+        when(historyRepository.findPartitionDays()).thenReturn(List.of(expired, kept, today));
+
+        // When
+        historyService.maintain();
+
+        // Then
+        verify(historyRepository, never()).createPartition(today);
+        verify(historyRepository).createPartition(LocalDate.parse("2025-08-21"));
+        verify(historyRepository).createPartition(LocalDate.parse("2025-08-22"));
+        verify(historyRepository).rollupAndDropPartition(expired);
+        verify(historyRepository, never()).rollupAndDropPartition(kept);
+        verify(historyRepository).findDefaultDaysBefore(Instant.parse("2025-08-13T00:00:00Z"));
+        verify(historyRepository).deleteHourlyBefore(Instant.parse("2025-05-22T00:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("Should roll up default-partition days and survive a failed partition or rollup")
+    void testMaintain_DefaultPartition() {
+        // Given
+        LocalDate expired = LocalDate.parse("2025-08-11");
+        LocalDate stranded = LocalDate.parse("2025-08-10");
+        LocalDate late = LocalDate.parse("2025-08-12");
+        Instant cutoff = Instant.parse("2025-08-13T00:00:00Z");
+        when(historyRepository.findPartitionDays()).thenReturn(List.of(expired));
+        when(historyRepository.findDefaultDaysBefore(cutoff)).thenReturn(List.of(stranded, late));
+        doThrow(new IllegalStateException("lock timeout")).when(historyRepository)
+                .createPartition(LocalDate.parse("2025-08-20"));
+        doThrow(new IllegalStateException("lock timeout")).when(historyRepository).rollupAndDropPartition(expired);
+        doThrow(new IllegalStateException("deadlock")).when(historyRepository).rollupAndDeleteDefaultDay(stranded);
+
+        // When
+        historyService.maintain();
+
+        // Then
+        verify(historyRepository).createPartition(LocalDate.parse("2025-08-22"));
+        verify(historyRepository).rollupAndDeleteDefaultDay(late);
+        verify(historyRepository).deleteHourlyBefore(Instant.parse("2025-05-22T00:00:00Z"));
+    }
+
+    @Test
+    @DisplayName("Should not write history when disabled")
+    void testDisabled() {
+        // Given
+        carparkProperties.getHistory().setEnabled(false);
+
+        // When
+        historyService.record(new String[]{"A1"}, new String[]{"C"}, new int[]{5}, Instant.now());
+
+        // Then
+        verifyNoInteractions(historyRepository);
+    }
+
+    @Test
+    @DisplayName("Should append a snapshot in one insert once the schema is ready and swallow failures")
+    void testRecord() {
+        // Given
+        String[] ids = {"A1", "B2"};
+        String[] lotTypes = {"C", "Y"};
+        Instant recordedAt = Instant.now();
+        historyService.record(ids, lotTypes, new int[]{5, 6}, recordedAt);
+        verify(historyRepository, never()).insertAll(any(), any(), any(), any());
+        historyService.ensureSchema();
+        when(historyRepository.insertAll(any(), any(), any(), any()))
+                .thenThrow(new IllegalStateException("lock timeout"));
+
+        // When
+        historyService.record(ids, lotTypes, new int[]{5, 6}, recordedAt);
+
+        // Then - every row is stamped with the observation time
+        verify(historyRepository).insertAll(ids, lotTypes, new int[]{5, 6}, new Instant[]{recordedAt, recordedAt});
+    }
+}
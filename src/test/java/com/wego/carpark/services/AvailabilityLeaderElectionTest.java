@@ -0,0 +1,118 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailabilityLeaderElectionTest {
+
+    @Mock
+    private DataSource dataSource;
+
+    @Mock
+    private Connection connection;
+
+    @Mock
+    private Statement statement;
+
+    @Mock
+    private PreparedStatement lockStatement;
+
+    @Mock
+    private ResultSet lockResult;
+
+    private CarparkProperties carparkProperties;
+    private AvailabilityLeaderElection election;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        MockitoAnnotations.openMocks(this);
+        carparkProperties = new CarparkProperties();
+        carparkProperties.getLeader().setEnabled(true);
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.createStatement()).thenReturn(statement);
+        when(connection.prepareStatement("SELECT pg_try_advisory_lock(?)")).thenReturn(lockStatement);
+        when(lockStatement.executeQuery()).thenReturn(lockResult);
+        when(lockResult.next()).thenReturn(true);
+        election = new AvailabilityLeaderElection(dataSource, carparkProperties);
+    }
+
+    @Test
+    @DisplayName("Should always lead when election is disabled")
+    void testDisabled() {
+        carparkProperties.getLeader().setEnabled(false);
+        assertTrue(election.isLeader());
+    }
+
+    @Test
+    @DisplayName("Should lead only once the advisory lock is acquired")
+    void testAcquire() throws Exception {
+        // Given
+        when(lockResult.getBoolean(1)).thenReturn(false, true);
+
+        // When / Then
+        election.heartbeat();
+        assertFalse(election.isLeader());
+        election.heartbeat();
+        assertTrue(election.isLeader());
+        verify(lockStatement).setLong(1, carparkProperties.getLeader().getLockKey());
+        verify(dataSource, times(1)).getConnection();
+        verify(statement).execute("SET idle_session_timeout = '30s'");
+    }
+
+    @Test
+    @DisplayName("Should step down when the lock connection breaks and try again on a new one")
+    void testLoseLeadership() throws Exception {
+        // Given
+        when(lockResult.getBoolean(1)).thenReturn(true);
+        election.heartbeat();
+        when(connection.isValid(anyInt())).thenReturn(false);
+
+        // When
+        election.heartbeat();
+
+        // Then
+        assertFalse(election.isLeader());
+        verify(connection).close();
+
+        // When
+        election.heartbeat();
+
+        // Then
+        assertTrue(election.isLeader());
+        verify(dataSource, times(2)).getConnection();
+    }
+
+    @Test
+    @DisplayName("Should release the lock and session settings on shutdown")
+    void testStop() throws Exception {
+        // Given
+        when(lockResult.getBoolean(1)).thenReturn(true);
+        election.heartbeat();
+
+        // When
+        election.stop();
+
+        // Then
+        assertFalse(election.isLeader());
+        verify(statement).execute("SELECT pg_advisory_unlock_all()");
+        verify(statement).execute("RESET ALL");
+        verify(connection).close();
+    }
+}
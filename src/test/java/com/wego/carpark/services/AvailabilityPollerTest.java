@@ -0,0 +1,156 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailabilityPollerTest {
+
+    @Mock
+    private CarParkAvailabilityUpdateService updateService;
+
+    @Mock
+    private AvailabilityLeaderElection leaderElection;
+
+    private AvailabilityPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        CarparkProperties carparkProperties = new CarparkProperties();
+        carparkProperties.getPoller().setIntervalSeconds(60);
+        carparkProperties.getPoller().setMinIntervalSeconds(15);
+        carparkProperties.getPoller().setMaxIntervalSeconds(300);
+        carparkProperties.getPoller().setMaxBackoffSeconds(600);
+        when(leaderElection.isLeader()).thenReturn(true);
+        poller = new AvailabilityPoller(updateService, leaderElection, carparkProperties);
+    }
+
+    @Test
+    @DisplayName("Should not start a second refresh while one is running")
+    void testSingleFlight() throws Exception {
+        // Given
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(updateService.updateOnce()).thenAnswer(invocation -> {
+            entered.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return new CarParkAvailabilityUpdateService.Result(1, 0, 0, 0, "ok", null);
+        });
+
+        // When
+        CompletableFuture<CarParkAvailabilityUpdateService.Result> first = CompletableFuture.supplyAsync(poller::refreshNow);
+        assertTrue(entered.await(5, TimeUnit.SECONDS));
+        CarParkAvailabilityUpdateService.Result second = poller.refreshNow();
+        release.countDown();
+
+        // Then
+        assertEquals("already-running", second.status());
+        assertEquals("ok", first.get(5, TimeUnit.SECONDS).status());
+        verify(updateService, times(1)).updateOnce();
+    }
+
+    @Test
+    @DisplayName("Should not refresh on a node that is not the leader")
+    void testNotLeader() {
+        // Given
+        when(leaderElection.isLeader()).thenReturn(false);
+
+        // When
+        CarParkAvailabilityUpdateService.Result result = poller.refreshNow();
+
+        // Then
+        assertEquals("not-leader", result.status());
+        verify(updateService, never()).updateOnce();
+    }
+
+    @Test
+    @DisplayName("Should follow the upstream period within the configured bounds")
+    void testAdaptiveInterval() {
+        Instant t0 = Instant.parse("2025-08-20T10:00:00Z");
+
+        // First observation only records the timestamp
+        poller.onSuccess(t0);
+        assertEquals(60_000, poller.delayMillis());
+
+        // Upstream advanced after 30 s
+        poller.onSuccess(t0.plusSeconds(30));
+        assertEquals(30_000, poller.delayMillis());
+
+        // Upstream advanced after 5 s: clamped to the minimum
+        poller.onSuccess(t0.plusSeconds(35));
+        assertEquals(15_000, poller.delayMillis());
+
+        // Timestamp unchanged: grow by half
+        poller.onSuccess(t0.plusSeconds(35));
+        assertEquals(22_500, poller.delayMillis());
+
+        // Upstream advanced after 20 minutes: clamped to the maximum
+        poller.onSuccess(t0.plusSeconds(35 + 1200));
+        assertEquals(300_000, poller.delayMillis());
+    }
+
+    @Test
+    @DisplayName("Should probe and come back down when upstream publishes faster than the current delay")
+    void testAdaptiveInterval_UpstreamSpeedsUp() {
+        // Given - upstream stalled long enough for the delay to reach the maximum
+        Instant t0 = Instant.parse("2025-08-20T10:00:00Z");
+        poller.onSuccess(t0);
+        for (int i = 0; i < 10; i++) {
+            poller.onSuccess(t0);
+        }
+        assertEquals(300_000, poller.delayMillis());
+
+        // When - upstream now publishes every 60 s, and the poller runs on its own delays
+        long elapsed = 0;
+        int polls = 0;
+        while (poller.delayMillis() != 60_000 && polls < 20) {
+            elapsed += poller.delayMillis();
+            polls++;
+            poller.onSuccess(t0.plusSeconds(elapsed / 60_000 * 60));
+        }
+
+        // Then - a few 5-minute polls, one probe at the minimum interval, then the upstream period
+        assertEquals(60_000, poller.delayMillis());
+        assertEquals(7, polls);
+        assertEquals(960_000, elapsed);
+        for (int i = 0; i < 2; i++) {
+            elapsed += poller.delayMillis();
+            poller.onSuccess(t0.plusSeconds(elapsed / 60_000 * 60));
+            assertEquals(60_000, poller.delayMillis());
+        }
+    }
+
+    @Test
+    @DisplayName("Should back off exponentially on failures and reset on success")
+    void testBackoff() {
+        RuntimeException failure = new RuntimeException("upstream down");
+
+        poller.onFailure(failure);
+        assertEquals(120_000, poller.delayMillis());
+        poller.onFailure(failure);
+        assertEquals(240_000, poller.delayMillis());
+        poller.onFailure(failure);
+        assertEquals(480_000, poller.delayMillis());
+        poller.onFailure(failure);
+        assertEquals(600_000, poller.delayMillis());
+
+        poller.onSuccess(Instant.parse("2025-08-20T10:00:00Z"));
+        assertEquals(60_000, poller.delayMillis());
+    }
+}
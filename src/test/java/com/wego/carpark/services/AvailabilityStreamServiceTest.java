@@ -0,0 +1,178 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.dto.requests.AvailabilityStreamRequest;
+import com.wego.carpark.dto.responses.AvailabilityDelta;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.AvailabilityKey;
+import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.repositories.ChangedAvailability;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.reactivestreams.Subscription;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AvailabilityStreamServiceTest {
+    private static final Instant NOW = Instant.parse("2025-08-20T10:00:00Z");
+
+    @Mock
+    private CarParkAvailabilityRepository availabilityRepository;
+
+    private CarparkProperties carparkProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private AvailabilityStreamService streamService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        carparkProperties = new CarparkProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        streamService = new AvailabilityStreamService(availabilityRepository, carparkProperties, meterRegistry);
+        when(availabilityRepository.findChangedAvailability(any())).thenReturn(List.of(
+                new ChangedAvailability("A1", "C", 1.30, 103.80, 7, NOW),
+                new ChangedAvailability("A1", "Y", 1.30, 103.80, 3, NOW),
+                new ChangedAvailability("B2", "C", 1.40, 103.90, 5, NOW)));
+    }
+
+    @Test
+    @DisplayName("Should send each subscriber only the deltas inside its bounding box and lot type")
+    void testBoundingBoxFilter() {
+        // Given
+        AvailabilityStreamRequest request = new AvailabilityStreamRequest();
+        request.setMinLatitude(1.25);
+        request.setMaxLatitude(1.35);
+        request.setMinLongitude(103.75);
+        request.setMaxLongitude(103.85);
+        List<AvailabilityStreamService.Update> received = new ArrayList<>();
+        Disposable subscription = streamService.subscribe(request).orElseThrow().subscribe(received::add);
+
+        // When
+        streamService.onCarParkDataChanged(changed("A1", "B2"));
+
+        // Then
+        assertEquals(1, received.size());
+        assertEquals(1, received.get(0).deltas().size());
+        assertEquals("A1", received.get(0).deltas().get(0).getId());
+        assertEquals(7, received.get(0).deltas().get(0).getAvailableLots());
+        assertEquals(NOW, received.get(0).deltas().get(0).getLastUpdated());
+        subscription.dispose();
+    }
+
+    @Test
+    @DisplayName("Should send only the lot types that changed, not every row of a changed car park")
+    void testChangedLotsOnly() {
+        // Given
+        List<AvailabilityStreamService.Update> received = new ArrayList<>();
+        Disposable subscription = streamService.subscribe(new AvailabilityStreamRequest()).orElseThrow()
+                .subscribe(received::add);
+
+        // When - A1 only changed its motorcycle lots
+        streamService.onCarParkDataChanged(CarParkDataChangedEvent.availabilityChanged(
+                Set.of(new AvailabilityKey("A1", "Y"), new AvailabilityKey("B2", "C"))));
+
+        // Then
+        assertEquals(1, received.size());
+        assertEquals(List.of("B2"), received.get(0).deltas().stream().map(AvailabilityDelta::getId).toList());
+        subscription.dispose();
+    }
+
+    @Test
+    @DisplayName("Should skip subscribers with nothing to receive and send a resync when the change is unscoped")
+    void testIdFilterAndResync() {
+        // Given
+        AvailabilityStreamRequest request = new AvailabilityStreamRequest();
+        request.setIds(List.of("C3"));
+        List<AvailabilityStreamService.Update> received = new ArrayList<>();
+        Disposable subscription = streamService.subscribe(request).orElseThrow().subscribe(received::add);
+
+        // When
+        streamService.onCarParkDataChanged(changed("A1", "B2"));
+        streamService.onCarParkDataChanged(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.IMPORT));
+
+        // Then
+        assertEquals(1, received.size());
+        assertTrue(received.get(0).resync());
+        subscription.dispose();
+    }
+
+    @Test
+    @DisplayName("Should drop the oldest updates of a slow subscriber without blocking the others")
+    void testDropOldest() {
+        // Given
+        carparkProperties.getStream().setBufferSize(2);
+        List<AvailabilityStreamService.Update> slowReceived = new ArrayList<>();
+        BaseSubscriber<AvailabilityStreamService.Update> slow = new BaseSubscriber<>() {
+            @Override
+            protected void hookOnSubscribe(Subscription subscription) {
+                // No demand until the test asks for it
+            }
+
+            @Override
+            protected void hookOnNext(AvailabilityStreamService.Update update) {
+                slowReceived.add(update);
+            }
+        };
+        streamService.subscribe(new AvailabilityStreamRequest()).orElseThrow().subscribe(slow);
+        List<AvailabilityStreamService.Update> fastReceived = new ArrayList<>();
+        Disposable fast = streamService.subscribe(new AvailabilityStreamRequest()).orElseThrow()
+                .subscribe(fastReceived::add);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            streamService.onCarParkDataChanged(changed("A1"));
+        }
+        slow.request(10);
+
+        // Then
+        assertEquals(4, fastReceived.size());
+        assertEquals(2, slowReceived.size());
+        assertEquals(2.0, meterRegistry.get("carpark.stream.dropped").counter().count());
+        slow.dispose();
+        fast.dispose();
+    }
+
+    @Test
+    @DisplayName("Should refuse subscribers over the limit and not query without subscribers")
+    void testLimits() {
+        // Given
+        carparkProperties.getStream().setMaxSubscribers(1);
+        AvailabilityStreamRequest partialBox = new AvailabilityStreamRequest();
+        partialBox.setMinLatitude(1.25);
+
+        // When
+        streamService.onCarParkDataChanged(changed("A1"));
+        Disposable subscription = streamService.subscribe(new AvailabilityStreamRequest()).orElseThrow()
+                .subscribe();
+
+        // Then
+        verify(availabilityRepository, never()).findChangedAvailability(any());
+        assertTrue(streamService.subscribe(new AvailabilityStreamRequest()).isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> streamService.subscribe(partialBox));
+        subscription.dispose();
+        assertTrue(streamService.subscribe(new AvailabilityStreamRequest()).isPresent());
+        // The slot is held from subscribe(), before the stream is subscribed to
+        assertTrue(streamService.subscribe(new AvailabilityStreamRequest()).isEmpty());
+    }
+
+    private static CarParkDataChangedEvent changed(String... carParkIds) {
+        return new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.AVAILABILITY, Set.of(carParkIds));
+    }
+}
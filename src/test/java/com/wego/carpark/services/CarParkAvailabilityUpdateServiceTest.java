@@ -0,0 +1,399 @@
+package com.wego.carpark.services;
+
+import com.sun.net.httpserver.HttpServer;
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.config.HttpConfig;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.AvailabilityKey;
+import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.repositories.CarParkRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+import org.mockito.invocation.InvocationOnMock;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CarParkAvailabilityUpdateServiceTest {
+
+    private static final String PAYLOAD = """
+            {"items": [{"timestamp": "2025-08-20T10:00:00Z", "carpark_data": [
+              {"carpark_number": "A1", "update_datetime": "2025-08-20T09:59:12", "carpark_info": [
+                 {"total_lots": "100", "lot_type": "C", "lots_available": "10"},
+                 {"total_lots": "20", "lot_type": "Y", "lots_available": "5"}]},
+              {"carpark_number": "B2", "carpark_info": [{"total_lots": "50", "lot_type": "C", "lots_available": "7"}]},
+              {"carpark_number": "A1", "carpark_info": [{"total_lots": "100", "lot_type": "C", "lots_available": "99"}]},
+              {"carpark_number": "ZZ", "carpark_info": [{"total_lots": "10", "lot_type": "C", "lots_available": "1"}]},
+              {"carpark_number": "C3", "carpark_info": [{"total_lots": "30", "lot_type": "C", "lots_available": "n/a"}]}
+            ]}]}
+            """;
+
+    @Mock
+    private CarParkRepository carParkRepository;
+
+    @Mock
+    private CarParkRegistry carParkRegistry;
+
+    @Mock
+    private CarParkAvailabilityRepository availabilityRepository;
+
+    @Mock
+    private AvailabilityHistoryService historyService;
+
+    @Mock
+    private AvailabilityChangeNotifier changeNotifier;
+
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private PlatformTransactionManager transactionManager;
+
+    private CarparkProperties carparkProperties;
+    private SimpleMeterRegistry meterRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        carparkProperties = new CarparkProperties();
+        carparkProperties.setAvailabilityUrl("http://upstream/availability");
+        meterRegistry = new SimpleMeterRegistry();
+        when(carParkRegistry.isKnown(any())).thenAnswer(invocation -> !"ZZ".equals(invocation.getArgument(0)));
+    }
+
+    @Test
+    @DisplayName("Should write accepted rows in chunks, each in its own transaction")
+    void testChunkedWrites() {
+        // Given
+        carparkProperties.getIngest().setChunkSize(2);
+        when(availabilityRepository.upsertAll(any(), any(), any(), any(), any()))
+                .thenAnswer(CarParkAvailabilityUpdateServiceTest::allRows);
+        CarParkAvailabilityUpdateService service = service(PAYLOAD);
+
+        // When
+        CarParkAvailabilityUpdateService.Result result = service.updateOnce();
+
+        // Then
+        ArgumentCaptor<String[]> ids = ArgumentCaptor.forClass(String[].class);
+        ArgumentCaptor<String[]> lotTypes = ArgumentCaptor.forClass(String[].class);
+        verify(availabilityRepository, times(2)).upsertAll(ids.capture(), lotTypes.capture(), any(), any(), any());
+        assertArrayEquals(new String[]{"A1", "A1"}, ids.getAllValues().get(0));
+        assertArrayEquals(new String[]{"C", "Y"}, lotTypes.getAllValues().get(0));
+        assertArrayEquals(new String[]{"B2"}, ids.getAllValues().get(1));
+        verify(transactionManager, times(2)).commit(any());
+        ArgumentCaptor<Instant[]> lastUpdated = ArgumentCaptor.forClass(Instant[].class);
+        verify(availabilityRepository, times(2)).upsertAll(any(), any(), any(), any(), lastUpdated.capture());
+        // Car park's own Singapore time first, the snapshot time when it has none
+        Instant a1UpdatedAt = Instant.parse("2025-08-20T01:59:12Z");
+        assertArrayEquals(new Instant[]{a1UpdatedAt, a1UpdatedAt}, lastUpdated.getAllValues().get(0));
+        assertArrayEquals(new Instant[]{Instant.parse("2025-08-20T10:00:00Z")}, lastUpdated.getAllValues().get(1));
+        // History samples are stamped with the snapshot time, whatever each car park's own update time
+        verify(historyService, times(2)).record(any(), any(), any(), eq(Instant.parse("2025-08-20T10:00:00Z")));
+
+        assertEquals(3, result.processed());
+        assertEquals(0, result.unchanged());
+        assertEquals(1, result.skippedUnknownCarpark());
+        assertEquals(1, result.errors());
+        assertEquals(Instant.parse("2025-08-20T10:00:00Z"), result.timestamp());
+        ArgumentCaptor<CarParkDataChangedEvent> event = ArgumentCaptor.forClass(CarParkDataChangedEvent.class);
+        verify(eventPublisher).publishEvent(event.capture());
+        assertEquals(Set.of("A1", "B2"), event.getValue().carParkIds());
+        AvailabilityKey a1Car = new AvailabilityKey("A1", "C");
+        AvailabilityKey a1Motorcycle = new AvailabilityKey("A1", "Y");
+        AvailabilityKey b2Car = new AvailabilityKey("B2", "C");
+        assertEquals(Set.of(a1Car, a1Motorcycle, b2Car), event.getValue().changedLots());
+        long version = Instant.parse("2025-08-20T10:00:00Z").toEpochMilli();
+        verify(changeNotifier).notifyChanged(version, Set.of(a1Car, a1Motorcycle));
+        verify(changeNotifier).notifyChanged(version, Set.of(b2Car));
+
+        assertEquals(6.0, meterRegistry.get("carpark.availability.parse.records").counter().count());
+        assertEquals(3.0, meterRegistry.get("carpark.availability.diff.records").tag("outcome", "accepted")
+                .counter().count());
+        assertEquals(1.0, meterRegistry.get("carpark.availability.diff.records").tag("outcome", "duplicate")
+                .counter().count());
+        assertEquals(2, meterRegistry.get("carpark.availability.write").timer().count());
+    }
+
+    @Test
+    @DisplayName("Should count bytes and records once when a retry replays the response")
+    void testRetryCountsOnce() {
+        // Given - the first attempt breaks off after the first car park, the second reads it all
+        when(availabilityRepository.upsertAll(any(), any(), any(), any(), any()))
+                .thenAnswer(CarParkAvailabilityUpdateServiceTest::allRows);
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        int cut = PAYLOAD.indexOf("{\"carpark_number\": \"B2\"");
+        AtomicInteger attempts = new AtomicInteger();
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> {
+                    DefaultDataBufferFactory buffers = DefaultDataBufferFactory.sharedInstance;
+                    Flux<DataBuffer> body = attempts.getAndIncrement() == 0
+                            ? Flux.concat(Flux.just(buffers.wrap(Arrays.copyOf(bytes, cut))),
+                                    Flux.error(new IOException("Connection reset")))
+                            : Flux.just(buffers.wrap(bytes));
+                    return Mono.just(ClientResponse.create(HttpStatus.OK)
+                            .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                            .body(body)
+                            .build());
+                })
+                .build();
+        CarParkAvailabilityUpdateService service = new CarParkAvailabilityUpdateService(webClient, carparkProperties,
+                carParkRepository, carParkRegistry, availabilityRepository, historyService, changeNotifier,
+                eventPublisher, transactionManager, meterRegistry);
+        JobProgress progress = new JobProgress();
+
+        // When
+        CarParkAvailabilityUpdateService.Result result = service.updateOnce(progress);
+
+        // Then
+        assertEquals(2, attempts.get());
+        assertEquals(3, result.processed());
+        assertEquals((double) bytes.length, meterRegistry.get("carpark.availability.fetch.bytes").counter().count());
+        assertEquals(6.0, meterRegistry.get("carpark.availability.parse.records").counter().count());
+        assertEquals(6, progress.rowsRead());
+    }
+
+    @Test
+    @DisplayName("Should not publish a change event when every row is unchanged")
+    void testUnchangedSnapshot() {
+        // Given
+        when(availabilityRepository.upsertAll(any(), any(), any(), any(), any())).thenReturn(List.of());
+        CarParkAvailabilityUpdateService service = service(PAYLOAD);
+
+        // When
+        CarParkAvailabilityUpdateService.Result result = service.updateOnce();
+
+        // Then
+        assertEquals(0, result.processed());
+        assertEquals(3, result.unchanged());
+        verify(eventPublisher, never()).publishEvent(any());
+    }
+
+    @Test
+    @DisplayName("Should report an empty payload without writing")
+    void testEmptyPayload() {
+        // Given
+        CarParkAvailabilityUpdateService service = service("{\"items\": []}");
+
+        // When
+        CarParkAvailabilityUpdateService.Result result = service.updateOnce();
+
+        // Then
+        assertEquals("empty-payload", result.status());
+        verify(availabilityRepository, never()).upsertAll(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("Should fetch gzip-compressed and skip the body when upstream answers 304")
+    void testConditionalCompressedFetch() throws Exception {
+        // Given
+        when(availabilityRepository.upsertAll(any(), any(), any(), any(), any()))
+                .thenAnswer(CarParkAvailabilityUpdateServiceTest::allRows);
+        try (StubUpstream upstream = new StubUpstream(largePayload("2025-08-20T10:00:00Z"), true)) {
+            CarParkAvailabilityUpdateService service = service(upstream);
+
+            // When
+            CarParkAvailabilityUpdateService.Result first = service.updateOnce();
+            long firstBytes = upstream.bytesSent();
+            CarParkAvailabilityUpdateService.Result second = service.updateOnce();
+
+            // Then
+            assertEquals("ok", first.status());
+            assertEquals("gzip", upstream.lastAcceptEncoding());
+            assertTrue(firstBytes < upstream.payloadLength() / 4, "compressed body: " + firstBytes + " bytes");
+            assertEquals("not-modified", second.status());
+            assertEquals(first.timestamp(), second.timestamp());
+            assertEquals(firstBytes, upstream.bytesSent());
+            verify(availabilityRepository, times(1)).upsertAll(any(), any(), any(), any(), any());
+            verify(eventPublisher, times(1)).publishEvent(any());
+        }
+    }
+
+    @Test
+    @DisplayName("Should stop without writing when the snapshot timestamp has not moved")
+    void testUnchangedTimestampShortCircuit() throws Exception {
+        // Given
+        when(availabilityRepository.upsertAll(any(), any(), any(), any(), any()))
+                .thenAnswer(CarParkAvailabilityUpdateServiceTest::allRows);
+        try (StubUpstream upstream = new StubUpstream(largePayload("2025-08-20T10:00:00Z"), false)) {
+            CarParkAvailabilityUpdateService service = service(upstream);
+
+            // When
+            service.updateOnce();
+            CarParkAvailabilityUpdateService.Result second = service.updateOnce();
+
+            // Then
+            assertEquals(2, upstream.requests());
+            assertEquals("unchanged-snapshot", second.status());
+            assertEquals(Instant.parse("2025-08-20T10:00:00Z"), second.timestamp());
+            verify(availabilityRepository, times(1)).upsertAll(any(), any(), any(), any(), any());
+            verify(historyService, times(1)).record(any(), any(), any(), any());
+            verify(eventPublisher, times(1)).publishEvent(any());
+        }
+    }
+
+    @Test
+    @DisplayName("Should read update_datetime as Singapore time unless it carries an offset")
+    void testParseUpdateDatetime() {
+        assertEquals(Instant.parse("2025-08-20T01:59:12Z"),
+                CarParkAvailabilityUpdateService.parseUpdateDatetime("2025-08-20T09:59:12"));
+        assertEquals(Instant.parse("2025-08-20T09:59:12Z"),
+                CarParkAvailabilityUpdateService.parseUpdateDatetime("2025-08-20T09:59:12Z"));
+        assertNull(CarParkAvailabilityUpdateService.parseUpdateDatetime(null));
+        assertNull(CarParkAvailabilityUpdateService.parseUpdateDatetime("yesterday"));
+    }
+
+    private CarParkAvailabilityUpdateService service(StubUpstream upstream) {
+        carparkProperties.setAvailabilityUrl(upstream.url());
+        return new CarParkAvailabilityUpdateService(new HttpConfig().webClient(), carparkProperties,
+                carParkRepository, carParkRegistry, availabilityRepository, historyService, changeNotifier,
+                eventPublisher, transactionManager, meterRegistry);
+    }
+
+    private static String largePayload(String timestamp) {
+        StringBuilder carParks = new StringBuilder();
+        for (int i = 0; i < 200; i++) {
+            if (i > 0) carParks.append(',');
+            carParks.append("""
+                    {"carpark_number": "CP%d", "update_datetime": "2025-08-20T09:59:00",
+                     "carpark_info": [{"total_lots": "100", "lot_type": "C", "lots_available": "%d"}]}"""
+                    .formatted(i, i % 100));
+        }
+        return """
+                {"items": [{"timestamp": "%s", "carpark_data": [%s]}]}""".formatted(timestamp, carParks);
+    }
+
+    /**
+     * Local stand-in for the availability API. Gzips the body when asked to, and when {@code etags} is
+     * set answers a matching If-None-Match with 304.
+     */
+    private static final class StubUpstream implements AutoCloseable {
+        private static final String ETAG = "\"v1\"";
+
+        private final HttpServer server;
+        private final byte[] payload;
+        private final AtomicLong bytesSent = new AtomicLong();
+        private final AtomicInteger requests = new AtomicInteger();
+        private volatile String lastAcceptEncoding;
+
+        StubUpstream(String body, boolean etags) throws IOException {
+            this.payload = body.getBytes(StandardCharsets.UTF_8);
+            this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+            server.createContext("/availability", exchange -> {
+                requests.incrementAndGet();
+                lastAcceptEncoding = exchange.getRequestHeaders().getFirst("Accept-Encoding");
+                if (etags && ETAG.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                    exchange.sendResponseHeaders(304, -1);
+                    exchange.close();
+                    return;
+                }
+                byte[] bytes = payload;
+                if (lastAcceptEncoding != null && lastAcceptEncoding.contains("gzip")) {
+                    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+                    try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+                        gzip.write(payload);
+                    }
+                    bytes = compressed.toByteArray();
+                    exchange.getResponseHeaders().set("Content-Encoding", "gzip");
+                }
+                exchange.getResponseHeaders().set("Content-Type", "application/json");
+                if (etags) exchange.getResponseHeaders().set("ETag", ETAG);
+                exchange.sendResponseHeaders(200, bytes.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(bytes);
+                } catch (IOException e) {
+                    // client cancelled the download
+                }
+                bytesSent.addAndGet(bytes.length);
+            });
+            server.start();
+        }
+
+        String url() {
+            return "http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort()
+                    + "/availability";
+        }
+
+        long bytesSent() {
+            return bytesSent.get();
+        }
+
+        int payloadLength() {
+            return payload.length;
+        }
+
+        int requests() {
+            return requests.get();
+        }
+
+        String lastAcceptEncoding() {
+            return lastAcceptEncoding;
+        }
+
+        @Override
+        public void close() {
+            server.stop(0);
+        }
+    }
+
+    private CarParkAvailabilityUpdateService service(String body) {
+        WebClient webClient = WebClient.builder()
+                .exchangeFunction(request -> Mono.just(ClientResponse.create(HttpStatus.OK)
+                        .header(HttpHeaders.CONTENT_TYPE, MediaType.APPLICATION_JSON_VALUE)
+                        .body(body)
+                        .build()))
+                .build();
+        return new CarParkAvailabilityUpdateService(webClient, carparkProperties, carParkRepository, carParkRegistry,
+                availabilityRepository, historyService, changeNotifier, eventPublisher, transactionManager,
+                meterRegistry);
+    }
+
+    // Upsert stub reporting every row of the chunk as changed
+    private static List<AvailabilityKey> allRows(InvocationOnMock invocation) {
+        String[] ids = invocation.getArgument(0);
+        String[] lotTypes = invocation.getArgument(1);
+        List<AvailabilityKey> keys = new ArrayList<>();
+        for (int i = 0; i < ids.length; i++) {
+            keys.add(new AvailabilityKey(ids[i], lotTypes[i]));
+        }
+        return keys;
+    }
+}
@@ -8,6 +8,7 @@ import org.junit.jupiter.api.Test;
 import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -21,12 +22,18 @@ class CarParkImportServiceTest {
     @Mock
     private CarParkRepository carParkRepository;
 
+    @Mock
+    private ApplicationEventPublisher eventPublisher;
+
+    @Mock
+    private AvailabilityChangeNotifier changeNotifier;
+
     private CarParkImportService carParkImportService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        carParkImportService = new CarParkImportService(carParkRepository);
+        carParkImportService = new CarParkImportService(carParkRepository, eventPublisher, changeNotifier);
     }
 
     @Test
@@ -95,6 +102,7 @@ class CarParkImportServiceTest {
         assertTrue(result.totalRows() > 0);
         assertTrue(result.convertedRows() > 0);
         verify(carParkRepository, atLeastOnce()).saveAll(any());
+        verify(changeNotifier).notifyImported();
     }
 
     @Test
@@ -0,0 +1,125 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.entities.CarPark;
+import com.wego.carpark.entities.CarParkAvailability;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.TestPropertySource;
+
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@DataJpaTest
+@Import({CarParkIndexService.class, CarParkService.class, NearestCarParkCache.class, CarparkProperties.class,
+        SimpleMeterRegistry.class})
+@TestPropertySource(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class CarParkIndexServiceTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private CarParkIndexService carParkIndexService;
+
+    @Autowired
+    private CarParkService carParkService;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        statistics = entityManager.getEntityManager().getEntityManagerFactory()
+                .unwrap(SessionFactory.class).getStatistics();
+    }
+
+    @Test
+    @DisplayName("Should patch only the changed car parks into the index with a single select")
+    void testPatchChangedCarParks() {
+        // Given
+        CarParkAvailability a1 = persist("A1", 10);
+        persist("B2", 5);
+        CarParkAvailability c3 = persist("C3", 0);
+        entityManager.flush();
+        carParkIndexService.rebuild();
+        a1.setAvailableLots(3);
+        c3.setAvailableLots(8);
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        // When
+        CarParkIndexService.IndexedSnapshot sameMembers = carParkIndexService.patch(Set.of("A1"));
+        CarParkIndexService.IndexedSnapshot newMember = carParkIndexService.patch(Set.of("C3"));
+
+        // Then - one select per patch, and a car park that became available is added
+        assertEquals(2, statistics.getPrepareStatementCount());
+        assertEquals(2, sameMembers.size());
+        assertEquals(3, sameMembers.availableLots(sameMembers.indexOf("A1")));
+        assertEquals(3, newMember.size());
+        assertEquals(8, newMember.availableLots(newMember.indexOf("C3")));
+        assertEquals(5, newMember.availableLots(newMember.indexOf("B2")));
+        assertTrue(newMember.version() > sameMembers.version());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {1, 10, 100})
+    @DisplayName("Should build the index and serve nearest requests with a constant number of SQL statements")
+    void testStatementCountIsConstant(int carParks) {
+        // Given
+        for (int i = 0; i < carParks; i++) {
+            CarPark carPark = new CarPark();
+            carPark.setId(String.format("CP%03d", i));
+            carPark.setAddress("Car Park " + i);
+            carPark.setLatitude(1.30 + i * 0.001);
+            carPark.setLongitude(103.80 + i * 0.001);
+            carPark.setTotalLots(100);
+            entityManager.persist(carPark);
+
+            CarParkAvailability availability = new CarParkAvailability();
+            availability.setCarPark(carPark);
+            availability.setAvailableLots(10);
+            entityManager.persist(availability);
+        }
+        entityManager.flush();
+        entityManager.clear();
+        statistics.clear();
+
+        // When
+        carParkIndexService.rebuild();
+        for (int i = 0; i < 5; i++) {
+            carParkService.findNearestCarParks(1.30, 103.80, 1, 10);
+        }
+
+        // Then - one select for the rebuild, none per request
+        assertEquals(1, statistics.getPrepareStatementCount());
+        assertEquals(carParks, carParkIndexService.current().size());
+    }
+
+    private CarParkAvailability persist(String id, int availableLots) {
+        CarPark carPark = new CarPark();
+        carPark.setId(id);
+        carPark.setAddress("Car Park " + id);
+        carPark.setLatitude(1.30);
+        carPark.setLongitude(103.80);
+        carPark.setTotalLots(100);
+        entityManager.persist(carPark);
+
+        CarParkAvailability availability = new CarParkAvailability();
+        availability.setCarPark(carPark);
+        availability.setAvailableLots(availableLots);
+        return entityManager.persist(availability);
+    }
+}
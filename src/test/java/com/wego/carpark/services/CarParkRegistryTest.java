@@ -0,0 +1,74 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.CarParkRepository;
+import com.wego.carpark.repositories.CarParkTotalLots;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class CarParkRegistryTest {
+
+    @Mock
+    private CarParkRepository carParkRepository;
+
+    private CarParkRegistry carParkRegistry;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        carParkRegistry = new CarParkRegistry(carParkRepository);
+        when(carParkRepository.findAllTotalLots()).thenReturn(List.of(
+                new CarParkTotalLots("A1", 100), new CarParkTotalLots("B2", 0)));
+    }
+
+    @Test
+    @DisplayName("Should answer membership from a single load")
+    void testMembership() {
+        assertTrue(carParkRegistry.isKnown("A1"));
+        assertTrue(carParkRegistry.isKnown("B2"));
+        assertFalse(carParkRegistry.isKnown("C3"));
+        assertFalse(carParkRegistry.hasZeroTotalLots("A1"));
+        assertTrue(carParkRegistry.hasZeroTotalLots("B2"));
+        verify(carParkRepository, times(1)).findAllTotalLots();
+    }
+
+    @Test
+    @DisplayName("Should forget zero totals once they are filled in")
+    void testTotalLotsFilled() {
+        // When
+        carParkRegistry.totalLotsFilled(List.of("B2"));
+
+        // Then
+        assertTrue(carParkRegistry.isKnown("B2"));
+        assertFalse(carParkRegistry.hasZeroTotalLots("B2"));
+    }
+
+    @Test
+    @DisplayName("Should reload after an import but not after an availability refresh")
+    void testReloadAfterImport() {
+        // Given
+        assertFalse(carParkRegistry.isKnown("C3"));
+        when(carParkRepository.findAllTotalLots()).thenReturn(List.of(new CarParkTotalLots("C3", 10)));
+
+        // When
+        carParkRegistry.onCarParkDataChanged(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.AVAILABILITY));
+        boolean knownAfterRefresh = carParkRegistry.isKnown("C3");
+        carParkRegistry.onCarParkDataChanged(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.IMPORT));
+
+        // Then
+        assertFalse(knownAfterRefresh);
+        assertTrue(carParkRegistry.isKnown("C3"));
+        assertFalse(carParkRegistry.isKnown("A1"));
+    }
+}
@@ -1,21 +1,43 @@
 package com.wego.carpark.services;
 
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.dto.requests.NearestCarParksBatchRequest;
+import com.wego.carpark.dto.requests.NearestCarParksRequest;
 import com.wego.carpark.dto.responses.CarParkResponse;
 import com.wego.carpark.entities.CarPark;
 import com.wego.carpark.entities.CarParkAvailability;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import com.wego.carpark.repositories.AvailableCarPark;
 import com.wego.carpark.repositories.CarParkAvailabilityRepository;
+import com.wego.carpark.repositories.NearestCarParkView;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyDouble;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
@@ -24,27 +46,34 @@ class CarParkServiceTest {
     @Mock
     private CarParkAvailabilityRepository carParkAvailabilityRepository;
 
+    private CarparkProperties carparkProperties;
+
+    private CarParkIndexService carParkIndexService;
+
     private CarParkService carParkService;
 
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        carParkService = new CarParkService(carParkAvailabilityRepository);
+        carparkProperties = new CarparkProperties();
+        carParkIndexService = new CarParkIndexService(carParkAvailabilityRepository, carparkProperties);
+        carParkService = new CarParkService(carParkIndexService, carParkAvailabilityRepository, carparkProperties,
+                new NearestCarParkCache(carparkProperties, new SimpleMeterRegistry()));
     }
 
     @Test
     @DisplayName("Should return empty list when no car parks are available")
     void testFindNearestCarParks_NoAvailableCarParks() {
         // Given
-        when(carParkAvailabilityRepository.findByAvailableLotsGreaterThan(0))
-                .thenReturn(Collections.emptyList());
+        when(carParkAvailabilityRepository.findAvailableCarParks())
+                .thenReturn(rows(Collections.emptyList()));
 
         // When
         List<CarParkResponse> result = carParkService.findNearestCarParks(1.0, 1.0, 1, 10);
 
         // Then
         assertTrue(result.isEmpty());
-        verify(carParkAvailabilityRepository).findByAvailableLotsGreaterThan(0);
+        verify(carParkAvailabilityRepository).findAvailableCarParks();
     }
 
     @Test
@@ -61,8 +90,8 @@ class CarParkServiceTest {
 
         List<CarParkAvailability> availabilities = Arrays.asList(availability1, availability2, availability3);
 
-        when(carParkAvailabilityRepository.findByAvailableLotsGreaterThan(0))
-                .thenReturn(availabilities);
+        when(carParkAvailabilityRepository.findAvailableCarParks())
+                .thenReturn(rows(availabilities));
 
         // When
         List<CarParkResponse> result = carParkService.findNearestCarParks(0.0, 0.0, 1, 10);
@@ -91,8 +120,8 @@ class CarParkServiceTest {
 
         List<CarParkAvailability> availabilities = Arrays.asList(availability1, availability2, availability3);
 
-        when(carParkAvailabilityRepository.findByAvailableLotsGreaterThan(0))
-                .thenReturn(availabilities);
+        when(carParkAvailabilityRepository.findAvailableCarParks())
+                .thenReturn(rows(availabilities));
 
         // When - page 2, per page 1
         List<CarParkResponse> result = carParkService.findNearestCarParks(0.0, 0.0, 2, 1);
@@ -109,8 +138,8 @@ class CarParkServiceTest {
         CarPark carPark1 = createCarPark("Car Park 1", 1.0, 1.0, 100);
         CarParkAvailability availability1 = createAvailability(carPark1, 10);
 
-        when(carParkAvailabilityRepository.findByAvailableLotsGreaterThan(0))
-                .thenReturn(List.of(availability1));
+        when(carParkAvailabilityRepository.findAvailableCarParks())
+                .thenReturn(rows(List.of(availability1)));
 
         // When - page 3, per page 1 (only 1 item available)
         List<CarParkResponse> result = carParkService.findNearestCarParks(0.0, 0.0, 3, 1);
@@ -126,8 +155,8 @@ class CarParkServiceTest {
         CarPark carPark = createCarPark("Test Car Park", 1.0, 1.0, 100);
         CarParkAvailability availability = createAvailability(carPark, 10);
 
-        when(carParkAvailabilityRepository.findByAvailableLotsGreaterThan(0))
-                .thenReturn(List.of(availability));
+        when(carParkAvailabilityRepository.findAvailableCarParks())
+                .thenReturn(rows(List.of(availability)));
 
         // When
         List<CarParkResponse> result = carParkService.findNearestCarParks(0.0, 0.0, 1, 10);
@@ -143,8 +172,359 @@ class CarParkServiceTest {
         assertTrue(response.getDistance() > 0);
     }
 
+    @Test
+    @DisplayName("Should serve repeated requests from the snapshot without querying the repository")
+    void testFindNearestCarParks_ServedFromSnapshot() {
+        // Given
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(Arrays.asList(
+                createAvailability(createCarPark("Car Park 1", 1.0, 1.0, 100), 10),
+                createAvailability(createCarPark("Car Park 2", 2.0, 2.0, 50), 5))));
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            carParkService.findNearestCarParks(0.0, 0.0, 1, 10);
+        }
+
+        // Then
+        verify(carParkAvailabilityRepository, times(1)).findAvailableCarParks();
+    }
+
+    @Test
+    @DisplayName("Should load the index once when concurrent first requests race for it")
+    void testFindNearestCarParks_ConcurrentFirstRequests() throws Exception {
+        // Given - the first load blocks until the other requests are waiting for the lock
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<AvailableCarPark> loaded = rows(List.of(createAvailability(createCarPark("Car Park 1", 1.0, 1.0, 100), 10)));
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return loaded;
+        });
+
+        // When
+        List<Thread> requests = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            Thread request = new Thread(() -> carParkIndexService.current());
+            requests.add(request);
+            request.start();
+            if (i == 0) assertTrue(loading.await(5, TimeUnit.SECONDS));
+        }
+        for (Thread request : requests.subList(1, requests.size())) {
+            while (request.getState() != Thread.State.BLOCKED) Thread.onSpinWait();
+        }
+        release.countDown();
+        for (Thread request : requests) request.join(5000);
+
+        // Then
+        verify(carParkAvailabilityRepository, times(1)).findAvailableCarParks();
+        assertEquals(1, carParkIndexService.current().size());
+    }
+
+    @Test
+    @DisplayName("Should page through all results with cursors in distance order")
+    void testFindNearestCarParks_CursorPaging() {
+        // Given
+        List<CarParkAvailability> availabilities = Arrays.asList(
+                createAvailability(createCarPark("Car Park 1", 1.0, 1.0, 100), 10),
+                createAvailability(createCarPark("Car Park 2", 2.0, 2.0, 50), 5),
+                createAvailability(createCarPark("Car Park 3", 3.0, 3.0, 75), 15),
+                createAvailability(createCarPark("Car Park 4", 4.0, 4.0, 75), 15),
+                createAvailability(createCarPark("Car Park 5", 5.0, 5.0, 75), 15));
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(availabilities));
+
+        // When
+        CarParkService.NearestPage first = carParkService.findNearestCarParks(request(0.0, 0.0, 1, 2, null));
+        CarParkService.NearestPage second = carParkService.findNearestCarParks(request(0.0, 0.0, 1, 2, first.nextCursor()));
+        CarParkService.NearestPage third = carParkService.findNearestCarParks(request(0.0, 0.0, 1, 2, second.nextCursor()));
+
+        // Then
+        assertEquals(List.of("Car Park 1", "Car Park 2"), first.items().stream().map(CarParkResponse::getAddress).toList());
+        assertEquals(List.of("Car Park 3", "Car Park 4"), second.items().stream().map(CarParkResponse::getAddress).toList());
+        assertEquals(List.of("Car Park 5"), third.items().stream().map(CarParkResponse::getAddress).toList());
+        assertNotNull(first.nextCursor());
+        assertNull(third.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should keep serving a cursor from the snapshot it was issued on")
+    void testFindNearestCarParks_CursorPinnedToSnapshot() {
+        // Given
+        CarPark carPark1 = createCarPark("Car Park 1", 1.0, 1.0, 100);
+        CarPark carPark2 = createCarPark("Car Park 2", 2.0, 2.0, 50);
+        CarPark carPark3 = createCarPark("Car Park 3", 3.0, 3.0, 75);
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(Arrays.asList(
+                createAvailability(carPark1, 10), createAvailability(carPark2, 5), createAvailability(carPark3, 15))));
+        CarParkService.NearestPage first = carParkService.findNearestCarParks(request(0.0, 0.0, 1, 1, null));
+
+        // Car Park 2 fills up after the first page was served
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(Arrays.asList(
+                createAvailability(carPark1, 10), createAvailability(carPark3, 15))));
+        carParkIndexService.rebuild();
+
+        // When
+        CarParkService.NearestPage second = carParkService.findNearestCarParks(request(0.0, 0.0, 1, 1, first.nextCursor()));
+        List<CarParkResponse> fresh = carParkService.findNearestCarParks(0.0, 0.0, 2, 1);
+
+        // Then
+        assertEquals("Car Park 2", second.items().get(0).getAddress());
+        assertEquals("Car Park 3", fresh.get(0).getAddress());
+    }
+
+    @Test
+    @DisplayName("Should reject a malformed cursor")
+    void testFindNearestCarParks_InvalidCursor() {
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(Collections.emptyList()));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> carParkService.findNearestCarParks(request(0.0, 0.0, 1, 10, "not a cursor")));
+    }
+
+    @Test
+    @DisplayName("Should delegate paging to the database in database search mode")
+    void testFindNearestCarParks_DatabaseMode() {
+        // Given
+        carparkProperties.getSearch().setMode(CarparkProperties.SearchMode.DATABASE);
+        NearestCarParkView row1 = createView("CP1", "Car Park 1", 1.0, 1.0, 157000);
+        NearestCarParkView row2 = createView("CP2", "Car Park 2", 2.0, 2.0, 314000);
+        when(carParkAvailabilityRepository.findNearestAvailable(0.0, 0.0, -90, 90, -180, 180, "C", 1, 2, 1L))
+                .thenReturn(Arrays.asList(row1, row2));
+
+        // When - page 2, per page 1
+        CarParkService.NearestPage result = carParkService.findNearestCarParks(request(0.0, 0.0, 2, 1, null));
+
+        // Then
+        assertEquals(1, result.items().size());
+        assertEquals("Car Park 1", result.items().get(0).getAddress());
+        assertTrue(result.items().get(0).getDistance() > 0);
+        assertNotNull(result.nextCursor());
+        verify(carParkAvailabilityRepository, never()).findAvailableCarParks();
+
+        // Next page resumes after the last row's KNN distance and id
+        when(carParkAvailabilityRepository.findNearestAvailableAfter(0.0, 0.0, -90, 90, -180, 180, "C", 1, 157000, "CP1", 2))
+                .thenReturn(List.of(row2));
+        CarParkService.NearestPage next = carParkService.findNearestCarParks(request(0.0, 0.0, 1, 1, result.nextCursor()));
+        assertEquals("Car Park 2", next.items().get(0).getAddress());
+        assertNull(next.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should only return car parks within the requested radius")
+    void testFindNearestCarParks_MaxDistance() {
+        // Given - roughly 0.3 km, 1.1 km and 5.6 km north of the origin
+        List<CarParkAvailability> availabilities = Arrays.asList(
+                createAvailability(createCarPark("Near", 1.3030, 103.8), 10),
+                createAvailability(createCarPark("Middle", 1.3100, 103.8), 10),
+                createAvailability(createCarPark("Far", 1.3500, 103.8), 10));
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(availabilities));
+        NearestCarParksRequest request = request(1.3, 103.8, 1, 10, null);
+        request.setMaxDistanceKm(2.0);
+
+        // When
+        CarParkService.NearestPage result = carParkService.findNearestCarParks(request);
+
+        // Then
+        assertEquals(List.of("Near", "Middle"), result.items().stream().map(CarParkResponse::getAddress).toList());
+        assertTrue(result.items().stream().allMatch(r -> r.getDistance() <= 2.0));
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should stop a database page at the radius")
+    void testFindNearestCarParks_DatabaseModeMaxDistance() {
+        // Given
+        carparkProperties.getSearch().setMode(CarparkProperties.SearchMode.DATABASE);
+        NearestCarParkView near = createView("CP1", "Near", 1.3030, 103.8, 330);
+        NearestCarParkView far = createView("CP2", "Far", 1.3500, 103.8, 5560);
+        when(carParkAvailabilityRepository.findNearestAvailable(anyDouble(), anyDouble(), anyDouble(), anyDouble(),
+                anyDouble(), anyDouble(), anyString(), anyInt(), anyInt(), anyLong())).thenReturn(Arrays.asList(near, far));
+        NearestCarParksRequest request = request(1.3, 103.8, 1, 10, null);
+        request.setMaxDistanceKm(2.0);
+
+        // When
+        CarParkService.NearestPage result = carParkService.findNearestCarParks(request);
+
+        // Then
+        assertEquals(1, result.items().size());
+        assertEquals("Near", result.items().get(0).getAddress());
+        assertNull(result.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should rank by SVY21 distance and report haversine distances in planar ranking")
+    void testFindNearestCarParks_PlanarRanking() {
+        // Given
+        List<CarParkAvailability> availabilities = Arrays.asList(
+                createAvailability(createCarPark("Near", 1.3030, 103.8000), 10),
+                createAvailability(createCarPark("Middle", 1.3000, 103.8100), 10),
+                createAvailability(createCarPark("Far", 1.3500, 103.8000), 10));
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(availabilities));
+        List<CarParkResponse> haversine = carParkService.findNearestCarParks(1.3, 103.8, 1, 10);
+        carparkProperties.getSearch().setRanking(CarparkProperties.Ranking.PLANAR);
+
+        // When
+        CarParkService.NearestPage first = carParkService.findNearestCarParks(request(1.3, 103.8, 1, 2, null));
+        CarParkService.NearestPage second = carParkService.findNearestCarParks(request(1.3, 103.8, 1, 2, first.nextCursor()));
+
+        // Then
+        List<CarParkResponse> planar = new ArrayList<>(first.items());
+        planar.addAll(second.items());
+        assertEquals(List.of("Near", "Middle", "Far"), planar.stream().map(CarParkResponse::getAddress).toList());
+        for (int i = 0; i < planar.size(); i++) {
+            assertEquals(haversine.get(i).getDistance(), planar.get(i).getDistance(), 1e-9);
+        }
+        assertNull(second.nextCursor());
+    }
+
+    @Test
+    @DisplayName("Should answer every batch origin like a single nearest request, in order")
+    void testFindNearestCarParksBatch() {
+        // Given
+        carparkProperties.getBatch().setParallelism(4);
+        carParkService = new CarParkService(carParkIndexService, carParkAvailabilityRepository, carparkProperties,
+                new NearestCarParkCache(carparkProperties, new SimpleMeterRegistry()));
+        List<CarParkAvailability> availabilities = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            availabilities.add(createAvailability(createCarPark("Car Park " + i, 1.30 + i * 0.002, 103.80 + i * 0.001), 10));
+        }
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(availabilities));
+
+        List<NearestCarParksBatchRequest.Origin> origins = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            NearestCarParksBatchRequest.Origin origin = new NearestCarParksBatchRequest.Origin();
+            origin.setLatitude(1.30 + i * 0.001);
+            origin.setLongitude(103.80 + (i % 7) * 0.01);
+            origin.setK(1 + i % 5);
+            origins.add(origin);
+        }
+
+        // When
+        List<List<CarParkResponse>> results = carParkService.findNearestCarParksBatch(origins);
+
+        // Then
+        assertEquals(origins.size(), results.size());
+        for (int i = 0; i < origins.size(); i++) {
+            NearestCarParksBatchRequest.Origin origin = origins.get(i);
+            List<CarParkResponse> expected = carParkService.findNearestCarParks(
+                    origin.getLatitude(), origin.getLongitude(), 1, origin.getK());
+            assertEquals(expected.stream().map(CarParkResponse::getAddress).toList(),
+                    results.get(i).stream().map(CarParkResponse::getAddress).toList());
+        }
+        verify(carParkAvailabilityRepository, times(1)).findAvailableCarParks();
+    }
+
+    @Test
+    @DisplayName("Should answer batches with one KNN query per origin in database search mode")
+    void testFindNearestCarParksBatch_DatabaseMode() {
+        // Given
+        carparkProperties.getSearch().setMode(CarparkProperties.SearchMode.DATABASE);
+        NearestCarParkView row1 = createView("CP1", "Car Park 1", 1.0, 1.0, 157000);
+        NearestCarParkView row2 = createView("CP2", "Car Park 2", 2.0, 2.0, 314000);
+        when(carParkAvailabilityRepository.findNearestAvailable(0.0, 0.0, -90, 90, -180, 180, "C", 1, 2, 0L))
+                .thenReturn(List.of(row1, row2));
+        when(carParkAvailabilityRepository.findNearestAvailable(2.0, 2.0, -90, 90, -180, 180, "C", 1, 3, 0L))
+                .thenReturn(List.of(row2, row1));
+        NearestCarParksBatchRequest.Origin first = new NearestCarParksBatchRequest.Origin();
+        first.setLatitude(0.0);
+        first.setLongitude(0.0);
+        first.setK(1);
+        NearestCarParksBatchRequest.Origin second = new NearestCarParksBatchRequest.Origin();
+        second.setLatitude(2.0);
+        second.setLongitude(2.0);
+        second.setK(2);
+
+        // When
+        List<List<CarParkResponse>> results = carParkService.findNearestCarParksBatch(List.of(first, second));
+
+        // Then - the in-memory index is never loaded
+        assertEquals(List.of("Car Park 1"), results.get(0).stream().map(CarParkResponse::getAddress).toList());
+        assertEquals(List.of("Car Park 2", "Car Park 1"),
+                results.get(1).stream().map(CarParkResponse::getAddress).toList());
+        verify(carParkAvailabilityRepository, never()).findAvailableCarParks();
+    }
+
+    @Test
+    @DisplayName("Should not load or patch the index on data changes in database search mode")
+    void testOnCarParkDataChanged_DatabaseMode() {
+        // Given
+        carparkProperties.getSearch().setMode(CarparkProperties.SearchMode.DATABASE);
+
+        // When
+        carParkIndexService.onCarParkDataChanged(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.IMPORT));
+        carParkIndexService.onCarParkDataChanged(
+                new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.AVAILABILITY, Set.of("CP1")));
+
+        // Then
+        verify(carParkAvailabilityRepository, never()).findAvailableCarParks();
+        verify(carParkAvailabilityRepository, never()).findByCarParkIds(any());
+    }
+
+    @Test
+    @DisplayName("Should search only the requested lot type and honour the minimum available lots")
+    void testFindNearestCarParks_LotTypeFilter() {
+        // Given
+        CarPark carPark1 = createCarPark("Car Park 1", 1.0, 1.0);
+        CarPark carPark2 = createCarPark("Car Park 2", 2.0, 2.0);
+        CarPark carPark3 = createCarPark("Car Park 3", 3.0, 3.0);
+        CarParkAvailability motorcycles1 = createAvailability(carPark1, 2);
+        motorcycles1.setLotType("Y");
+        CarParkAvailability motorcycles3 = createAvailability(carPark3, 8);
+        motorcycles3.setLotType("Y");
+        when(carParkAvailabilityRepository.findAvailableCarParks()).thenReturn(rows(Arrays.asList(
+                createAvailability(carPark1, 10), createAvailability(carPark2, 5), motorcycles1, motorcycles3)));
+
+        NearestCarParksRequest motorcycles = request(0.0, 0.0, 1, 10, null);
+        motorcycles.setLotType("Y");
+        NearestCarParksRequest roomyMotorcycles = request(0.0, 0.0, 1, 10, null);
+        roomyMotorcycles.setLotType("Y");
+        roomyMotorcycles.setMinAvailableLots(5);
+        NearestCarParksRequest heavyVehicles = request(0.0, 0.0, 1, 10, null);
+        heavyVehicles.setLotType("H");
+
+        // When
+        List<CarParkResponse> motorcycleResult = carParkService.findNearestCarParks(motorcycles).items();
+        List<CarParkResponse> roomyResult = carParkService.findNearestCarParks(roomyMotorcycles).items();
+        List<CarParkResponse> heavyResult = carParkService.findNearestCarParks(heavyVehicles).items();
+
+        // Then
+        assertEquals(List.of("Car Park 1", "Car Park 3"),
+                motorcycleResult.stream().map(CarParkResponse::getAddress).toList());
+        assertEquals("Y", motorcycleResult.get(0).getLotType());
+        assertEquals(2, motorcycleResult.get(0).getAvailableLots());
+        assertEquals(List.of("Car Park 3"), roomyResult.stream().map(CarParkResponse::getAddress).toList());
+        assertTrue(heavyResult.isEmpty());
+        assertEquals(2, carParkService.findNearestCarParks(0.0, 0.0, 1, 10).size());
+        verify(carParkAvailabilityRepository, times(1)).findAvailableCarParks();
+    }
+
+    private List<AvailableCarPark> rows(List<CarParkAvailability> availabilities) {
+        return availabilities.stream()
+                .map(availability -> {
+                    CarPark carPark = availability.getCarPark();
+                    return new AvailableCarPark(carPark.getId(), carPark.getAddress(), carPark.getLatitude(),
+                            carPark.getLongitude(), availability.getLotType(), carPark.getTotalLots(),
+                            availability.getAvailableLots(), carPark.getSvy21X(), carPark.getSvy21Y());
+                })
+                .toList();
+    }
+
+    private NearestCarParksRequest request(double latitude, double longitude, int page, int perPage, String cursor) {
+        NearestCarParksRequest request = new NearestCarParksRequest();
+        request.setLatitude(latitude);
+        request.setLongitude(longitude);
+        request.setPage(page);
+        request.setPerPage(perPage);
+        request.setCursor(cursor);
+        return request;
+    }
+
+    private CarPark createCarPark(String address, double latitude, double longitude) {
+        return createCarPark(address, latitude, longitude, 100);
+    }
+
     private CarPark createCarPark(String address, double latitude, double longitude, int totalLots) {
         CarPark carPark = new CarPark();
+        carPark.setId(address);
         carPark.setAddress(address);
         carPark.setLatitude(latitude);
         carPark.setLongitude(longitude);
@@ -158,4 +538,17 @@ class CarParkServiceTest {
         availability.setAvailableLots(availableLots);
         return availability;
     }
+
+    private NearestCarParkView createView(String id, String address, double latitude, double longitude,
+                                          double rankDistance) {
+        NearestCarParkView view = mock(NearestCarParkView.class);
+        when(view.getId()).thenReturn(id);
+        when(view.getAddress()).thenReturn(address);
+        when(view.getLatitude()).thenReturn(latitude);
+        when(view.getLongitude()).thenReturn(longitude);
+        when(view.getTotalLots()).thenReturn(100);
+        when(view.getAvailableLots()).thenReturn(10);
+        when(view.getRankDistance()).thenReturn(rankDistance);
+        return view;
+    }
 }
@@ -0,0 +1,151 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.exceptions.ImportValidationException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mock;
+import org.mockito.MockitoAnnotations;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JobServiceTest {
+
+    @Mock
+    private CarParkImportService importService;
+
+    @Mock
+    private AvailabilityPoller availabilityPoller;
+
+    private final CountDownLatch release = new CountDownLatch(1);
+    private JobService jobService;
+
+    @BeforeEach
+    void setUp() {
+        MockitoAnnotations.openMocks(this);
+        jobService = new JobService(importService, availabilityPoller, new CarparkProperties());
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        jobService.stop();
+    }
+
+    @Test
+    @DisplayName("Should return a job id at once, coalesce duplicates and report progress and the result")
+    void testRefreshJob() throws Exception {
+        // Given
+        CarParkAvailabilityUpdateService.Result result =
+                new CarParkAvailabilityUpdateService.Result(2, 1, 0, 0, "ok", null);
+        when(availabilityPoller.refreshNow(any(JobProgress.class))).thenAnswer(invocation -> {
+            JobProgress progress = invocation.getArgument(0);
+            progress.rowRead();
+            progress.rowConverted();
+            progress.rowsWritten(1);
+            release.await(5, TimeUnit.SECONDS);
+            return result;
+        });
+
+        // When
+        JobService.Submission first = jobService.submitAvailabilityRefresh();
+        JobService.Submission second = jobService.submitAvailabilityRefresh();
+        release.countDown();
+        JobService.JobStatus finished = await(first.job().id());
+
+        // Then
+        assertEquals(JobService.Outcome.ACCEPTED, first.outcome());
+        assertEquals(JobService.Outcome.COALESCED, second.outcome());
+        assertEquals(first.job().id(), second.job().id());
+        assertEquals(JobService.JobState.SUCCEEDED, finished.state());
+        assertEquals(result, finished.result());
+        assertEquals(1, finished.rowsRead());
+        assertEquals(1, finished.rowsConverted());
+        assertEquals(1, finished.rowsWritten());
+        verify(availabilityPoller, times(1)).refreshNow(any(JobProgress.class));
+    }
+
+    @Test
+    @DisplayName("Should refuse an import of another file while one is active and record failures")
+    void testImportConflictAndFailure() throws Exception {
+        // Given
+        when(importService.importFromCsv(eq("a.csv"), any(JobProgress.class))).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            throw new IllegalArgumentException("CSV file not found on classpath: a.csv");
+        });
+
+        // When
+        JobService.Submission first = jobService.submitImport("a.csv");
+        JobService.Submission other = jobService.submitImport("b.csv");
+        release.countDown();
+        JobService.JobStatus finished = await(first.job().id());
+
+        // Then
+        assertEquals(JobService.Outcome.CONFLICT, other.outcome());
+        assertEquals(first.job().id(), other.job().id());
+        assertEquals(JobService.JobState.FAILED, finished.state());
+        assertEquals("CSV file not found on classpath: a.csv", finished.error());
+        assertNull(finished.errorDetails());
+        assertNull(finished.result());
+        assertEquals(JobService.Outcome.ACCEPTED, jobService.submitImport("b.csv").outcome());
+    }
+
+    @Test
+    @DisplayName("Should keep the headers of a failed CSV validation in the job status")
+    void testImportValidationFailure() throws Exception {
+        // Given
+        when(importService.importFromCsv(eq("bad.csv"), any(JobProgress.class))).thenThrow(
+                new ImportValidationException("CSV is missing required headers", List.of("x_coord"),
+                        List.of("car_park_no", "address")));
+
+        // When
+        JobService.JobStatus finished = await(jobService.submitImport("bad.csv").job().id());
+
+        // Then
+        assertEquals(JobService.JobState.FAILED, finished.state());
+        assertEquals("CSV is missing required headers", finished.error());
+        assertEquals(Map.of("missing_headers", List.of("x_coord"),
+                "received_headers", List.of("car_park_no", "address")), finished.errorDetails());
+    }
+
+    @Test
+    @DisplayName("Should reject submissions the executor cannot take")
+    void testRejected() {
+        // Given
+        jobService.stop();
+
+        // When
+        JobService.Submission submission = jobService.submitAvailabilityRefresh();
+
+        // Then
+        assertEquals(JobService.Outcome.REJECTED, submission.outcome());
+        assertNull(submission.job());
+        assertTrue(jobService.find("unknown").isEmpty());
+    }
+
+    private JobService.JobStatus await(String jobId) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (System.nanoTime() < deadline) {
+            JobService.JobStatus status = jobService.find(jobId).orElseThrow();
+            if (status.state() == JobService.JobState.SUCCEEDED || status.state() == JobService.JobState.FAILED) {
+                return status;
+            }
+            Thread.sleep(10);
+        }
+        throw new AssertionError("Job " + jobId + " did not finish");
+    }
+}
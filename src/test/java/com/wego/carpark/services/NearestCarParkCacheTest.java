@@ -0,0 +1,131 @@
+package com.wego.carpark.services;
+
+import com.wego.carpark.config.CarparkProperties;
+import com.wego.carpark.events.CarParkDataChangedEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class NearestCarParkCacheTest {
+
+    private CarparkProperties carparkProperties;
+    private SimpleMeterRegistry meterRegistry;
+    private AtomicInteger loads;
+
+    @BeforeEach
+    void setUp() {
+        carparkProperties = new CarparkProperties();
+        meterRegistry = new SimpleMeterRegistry();
+        loads = new AtomicInteger();
+    }
+
+    @Test
+    @DisplayName("Should share a page between origins in the same cell")
+    void testSameCellHit() {
+        // Given
+        NearestCarParkCache cache = new NearestCarParkCache(carparkProperties, meterRegistry);
+
+        // When - about 10 m apart
+        CarParkService.NearestPage first = cache.get(1, 1.30001, 103.80001, 1, 10, null, "C", 1, this::load);
+        CarParkService.NearestPage second = cache.get(1, 1.30005, 103.80005, 1, 10, null, "C", 1, this::load);
+
+        // Then
+        assertSame(first, second);
+        assertEquals(1, loads.get());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "nearestCarParks").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(1.0, meterRegistry.get("cache.gets").tag("cache", "nearestCarParks").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should serve a page with a next cursor only to the origin that filled it")
+    void testCursorPageNotShared() {
+        // Given
+        NearestCarParkCache cache = new NearestCarParkCache(carparkProperties, meterRegistry);
+        CarParkService.NearestPage first = cache.get(1, 1.30001, 103.80001, 1, 10, null, "C", 1, this::loadWithCursor);
+
+        // When - the same origin again, then another origin in the same cell
+        CarParkService.NearestPage same = cache.get(1, 1.30001, 103.80001, 1, 10, null, "C", 1, this::loadWithCursor);
+        CarParkService.NearestPage other = cache.get(1, 1.30005, 103.80005, 1, 10, null, "C", 1, this::loadWithCursor);
+        CarParkService.NearestPage again = cache.get(1, 1.30001, 103.80001, 1, 10, null, "C", 1, this::loadWithCursor);
+
+        // Then - the other origin gets its own page and cursor, and does not evict the cached one
+        assertSame(first, same);
+        assertNotSame(first, other);
+        assertSame(first, again);
+        assertEquals(2, loads.get());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "nearestCarParks").tag("result", "hit")
+                .functionCounter().count());
+        assertEquals(2.0, meterRegistry.get("cache.gets").tag("cache", "nearestCarParks").tag("result", "miss")
+                .functionCounter().count());
+    }
+
+    @Test
+    @DisplayName("Should miss for other cells, pages, snapshots, radii and lot filters")
+    void testKeyParts() {
+        // Given
+        NearestCarParkCache cache = new NearestCarParkCache(carparkProperties, meterRegistry);
+        cache.get(1, 1.3, 103.8, 1, 10, null, "C", 1, this::load);
+
+        // When
+        cache.get(1, 1.301, 103.8, 1, 10, null, "C", 1, this::load);
+        cache.get(1, 1.3, 103.8, 2, 10, null, "C", 1, this::load);
+        cache.get(1, 1.3, 103.8, 1, 5, null, "C", 1, this::load);
+        cache.get(2, 1.3, 103.8, 1, 10, null, "C", 1, this::load);
+        cache.get(1, 1.3, 103.8, 1, 10, 2.0, "C", 1, this::load);
+        cache.get(1, 1.3, 103.8, 1, 10, null, "Y", 1, this::load);
+        cache.get(1, 1.3, 103.8, 1, 10, null, "C", 5, this::load);
+
+        // Then
+        assertEquals(8, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should drop all entries when car park data changes")
+    void testInvalidateOnDataChange() {
+        // Given
+        NearestCarParkCache cache = new NearestCarParkCache(carparkProperties, meterRegistry);
+        cache.get(1, 1.3, 103.8, 1, 10, null, "C", 1, this::load);
+
+        // When
+        cache.onCarParkDataChanged(new CarParkDataChangedEvent(CarParkDataChangedEvent.Source.AVAILABILITY));
+        cache.get(1, 1.3, 103.8, 1, 10, null, "C", 1, this::load);
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    @DisplayName("Should always load when caching is disabled")
+    void testDisabled() {
+        // Given
+        carparkProperties.getCache().setEnabled(false);
+        NearestCarParkCache cache = new NearestCarParkCache(carparkProperties, meterRegistry);
+
+        // When
+        cache.get(1, 1.3, 103.8, 1, 10, null, "C", 1, this::load);
+        cache.get(1, 1.3, 103.8, 1, 10, null, "C", 1, this::load);
+
+        // Then
+        assertEquals(2, loads.get());
+    }
+
+    private CarParkService.NearestPage load() {
+        loads.incrementAndGet();
+        return new CarParkService.NearestPage(List.of(), null);
+    }
+
+    private CarParkService.NearestPage loadWithCursor() {
+        loads.incrementAndGet();
+        return new CarParkService.NearestPage(List.of(), "cursor-" + loads.get());
+    }
+}
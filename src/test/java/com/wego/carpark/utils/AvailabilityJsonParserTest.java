@@ -0,0 +1,112 @@
+package com.wego.carpark.utils;
+
+import com.wego.carpark.dto.requests.AvailabilityRecord;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import reactor.core.publisher.Flux;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AvailabilityJsonParserTest {
+
+    private static final String PAYLOAD = """
+            {"items": [
+              {"timestamp": "2025-08-01T10:00:00+08:00",
+               "carpark_data": [
+                 {"carpark_info": [{"total_lots": "105", "lot_type": "C", "lots_available": "42"},
+                                   {"total_lots": "10", "lot_type": "Y", "lots_available": "3"}],
+                  "carpark_number": "HE12", "update_datetime": "2025-08-01T09:59:12",
+                  "extra": {"nested": [1, 2, {"lots_available": "999"}]}},
+                 {"carpark_info": [], "carpark_number": "HLM", "update_datetime": "2025-08-01T09:58:00"},
+                 {"carpark_info": [{"total_lots": 583, "lot_type": "C", "lots_available": "n/a"}],
+                  "carpark_number": "RHM", "update_datetime": null}
+               ]},
+              {"timestamp": "2025-08-01T09:59:00+08:00",
+               "carpark_data": [{"carpark_info": [{"total_lots": "1", "lot_type": "C", "lots_available": "1"}],
+                                 "carpark_number": "OLD"}]}
+             ],
+             "api_info": {"status": "healthy"}}
+            """;
+
+    private static final List<AvailabilityRecord> EXPECTED = List.of(
+            new AvailabilityRecord("HE12", "C", 105, 42, "2025-08-01T09:59:12", "2025-08-01T10:00:00+08:00"),
+            new AvailabilityRecord("HE12", "Y", 10, 3, "2025-08-01T09:59:12", "2025-08-01T10:00:00+08:00"),
+            new AvailabilityRecord("HLM", null, -1, -1, "2025-08-01T09:58:00", "2025-08-01T10:00:00+08:00"),
+            new AvailabilityRecord("RHM", "C", 583, -1, null, "2025-08-01T10:00:00+08:00"));
+
+    @Test
+    @DisplayName("Should emit one record per lot type of the first item")
+    void testParseWholeDocument() {
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        AvailabilityJsonParser parser = new AvailabilityJsonParser();
+
+        List<AvailabilityRecord> records = new ArrayList<>(parser.feed(bytes, 0, bytes.length));
+        records.addAll(parser.finish());
+
+        assertEquals(EXPECTED, records);
+    }
+
+    @Test
+    @DisplayName("Should produce the same records whatever the chunk boundaries")
+    void testParseChunkedInput() {
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        for (int chunkSize = 1; chunkSize <= 64; chunkSize++) {
+            AvailabilityJsonParser parser = new AvailabilityJsonParser();
+            List<AvailabilityRecord> records = new ArrayList<>();
+            for (int offset = 0; offset < bytes.length; offset += chunkSize) {
+                records.addAll(parser.feed(bytes, offset, Math.min(chunkSize, bytes.length - offset)));
+            }
+            records.addAll(parser.finish());
+
+            assertEquals(EXPECTED, records, "chunk size " + chunkSize);
+        }
+    }
+
+    @Test
+    @DisplayName("Should emit records before the document is complete")
+    void testEmitsIncrementally() {
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        int firstCarParkEnd = PAYLOAD.indexOf("\"carpark_info\": []");
+        AvailabilityJsonParser parser = new AvailabilityJsonParser();
+
+        List<AvailabilityRecord> early = parser.feed(bytes, 0, firstCarParkEnd);
+
+        assertEquals(EXPECTED.subList(0, 2), early);
+    }
+
+    @Test
+    @DisplayName("Should decode a stream of data buffers")
+    void testDecodeFlux() {
+        DefaultDataBufferFactory factory = new DefaultDataBufferFactory();
+        byte[] bytes = PAYLOAD.getBytes(StandardCharsets.UTF_8);
+        List<DataBuffer> buffers = new ArrayList<>();
+        for (int offset = 0; offset < bytes.length; offset += 100) {
+            buffers.add(factory.wrap(Arrays.copyOfRange(bytes, offset, Math.min(offset + 100, bytes.length))));
+        }
+
+        List<AvailabilityRecord> records = AvailabilityJsonParser.decode(Flux.fromIterable(buffers))
+                .collectList()
+                .block();
+
+        assertEquals(EXPECTED, records);
+    }
+
+    @Test
+    @DisplayName("Should fail on malformed JSON")
+    void testMalformed() {
+        byte[] bytes = "{\"items\": [}".getBytes(StandardCharsets.UTF_8);
+        AvailabilityJsonParser parser = new AvailabilityJsonParser();
+
+        assertThrows(RuntimeException.class, () -> {
+            parser.feed(bytes, 0, bytes.length);
+            parser.finish();
+        });
+    }
+}
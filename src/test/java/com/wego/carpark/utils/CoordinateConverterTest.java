@@ -127,4 +127,20 @@ class CoordinateConverterTest {
         assertEquals(latitude, latLng.latitude());
         assertEquals(longitude, latLng.longitude());
     }
+
+    @Test
+    @DisplayName("Should project WGS84 coordinates back to the same SVY21 coordinates")
+    void testWgs84ToSvy21_RoundTrip() {
+        // Given
+        double svy21X = 28947.5;
+        double svy21Y = 29208.5;
+        CoordinateConverter.LatLng latLng = CoordinateConverter.svy21ToWgs84(svy21X, svy21Y);
+
+        // When
+        CoordinateConverter.Svy21 result = CoordinateConverter.wgs84ToSvy21(latLng.latitude(), latLng.longitude());
+
+        // Then
+        assertEquals(svy21X, result.x(), 0.01);
+        assertEquals(svy21Y, result.y(), 0.01);
+    }
 }
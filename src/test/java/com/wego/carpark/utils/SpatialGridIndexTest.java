@@ -0,0 +1,178 @@
+package com.wego.carpark.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpatialGridIndexTest {
+
+    @Test
+    @DisplayName("Should return the same neighbours as a brute-force ranking")
+    void testNearestMatchesBruteForce() {
+        Random random = new Random(42);
+        int n = 2000;
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = 1.24 + random.nextDouble() * 0.23;
+            longitudes[i] = 103.62 + random.nextDouble() * 0.38;
+        }
+        SpatialGridIndex index = SpatialGridIndex.build(latitudes, longitudes, 0.01);
+
+        for (int q = 0; q < 50; q++) {
+            double lat = 1.24 + random.nextDouble() * 0.23;
+            double lon = 103.62 + random.nextDouble() * 0.38;
+            int k = 1 + random.nextInt(50);
+
+            int[] expected = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) ->
+                            DistanceUtil.haversine(lat, lon, latitudes[i], longitudes[i])).thenComparingInt(i -> i))
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+
+            assertArrayEquals(expected, index.nearest(lat, lon, k).indices());
+        }
+    }
+
+    @Test
+    @DisplayName("Should rank by SVY21 distance within 1% of the haversine ranking")
+    void testPlanarRankingAccuracy() {
+        Random random = new Random(7);
+        int n = 2000;
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        double[] svy21X = new double[n];
+        double[] svy21Y = new double[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = 1.24 + random.nextDouble() * 0.23;
+            longitudes[i] = 103.62 + random.nextDouble() * 0.38;
+            CoordinateConverter.Svy21 svy21 = CoordinateConverter.wgs84ToSvy21(latitudes[i], longitudes[i]);
+            svy21X[i] = svy21.x();
+            svy21Y[i] = svy21.y();
+        }
+        SpatialGridIndex index = SpatialGridIndex.build(latitudes, longitudes, svy21X, svy21Y, 0.01);
+
+        for (int q = 0; q < 50; q++) {
+            double lat = 1.24 + random.nextDouble() * 0.23;
+            double lon = 103.62 + random.nextDouble() * 0.38;
+            int k = 1 + random.nextInt(50);
+            CoordinateConverter.Svy21 origin = CoordinateConverter.wgs84ToSvy21(lat, lon);
+
+            SpatialGridIndex.Neighbours haversine = index.nearest(lat, lon, k);
+            SpatialGridIndex.Neighbours planar = index.nearest(
+                    SpatialGridIndex.Search.of(lat, lon, k).planar(origin.x(), origin.y()));
+
+            // Exact ordering by the planar key
+            int[] expected = IntStream.range(0, n).boxed()
+                    .sorted(Comparator.comparingDouble((Integer i) ->
+                            Math.pow(svy21X[i] - origin.x(), 2) + Math.pow(svy21Y[i] - origin.y(), 2))
+                            .thenComparingInt(i -> i))
+                    .limit(k)
+                    .mapToInt(Integer::intValue)
+                    .toArray();
+            assertArrayEquals(expected, planar.indices());
+
+            // Every rank reports (nearly) the same haversine distance as the haversine ranking
+            for (int r = 0; r < k; r++) {
+                int i = planar.indices()[r];
+                double distance = DistanceUtil.haversine(lat, lon, latitudes[i], longitudes[i]);
+                assertEquals(haversine.keys()[r], distance, haversine.keys()[r] * 0.01 + 0.001);
+            }
+        }
+    }
+
+    @Test
+    @DisplayName("Should apply the radius exactly in planar ranking")
+    void testPlanarRankingRadius() {
+        Random random = new Random(11);
+        int n = 2000;
+        double[] latitudes = new double[n];
+        double[] longitudes = new double[n];
+        double[] svy21X = new double[n];
+        double[] svy21Y = new double[n];
+        for (int i = 0; i < n; i++) {
+            latitudes[i] = 1.24 + random.nextDouble() * 0.23;
+            longitudes[i] = 103.62 + random.nextDouble() * 0.38;
+            CoordinateConverter.Svy21 svy21 = CoordinateConverter.wgs84ToSvy21(latitudes[i], longitudes[i]);
+            svy21X[i] = svy21.x();
+            svy21Y[i] = svy21.y();
+        }
+        SpatialGridIndex index = SpatialGridIndex.build(latitudes, longitudes, svy21X, svy21Y, 0.01);
+
+        for (int q = 0; q < 20; q++) {
+            double lat = 1.24 + random.nextDouble() * 0.23;
+            double lon = 103.62 + random.nextDouble() * 0.38;
+            double radius = 0.5 + random.nextDouble() * 3;
+            CoordinateConverter.Svy21 origin = CoordinateConverter.wgs84ToSvy21(lat, lon);
+
+            int[] expected = IntStream.range(0, n)
+                    .filter(i -> DistanceUtil.haversine(lat, lon, latitudes[i], longitudes[i]) <= radius)
+                    .toArray();
+            int[] actual = index.nearest(SpatialGridIndex.Search.of(lat, lon, n)
+                    .within(radius).planar(origin.x(), origin.y())).indices().clone();
+            Arrays.sort(actual);
+            assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    @DisplayName("Should find neighbours for a query outside the indexed area")
+    void testNearestOutsideGrid() {
+        double[] latitudes = {1.30, 1.35, 1.40};
+        double[] longitudes = {103.80, 103.85, 103.90};
+        SpatialGridIndex index = SpatialGridIndex.build(latitudes, longitudes, 0.01);
+
+        assertArrayEquals(new int[]{0, 1}, index.nearest(-1.37, 103.80, 2).indices());
+        assertArrayEquals(new int[]{2, 1, 0}, index.nearest(3.0, 104.5, 10).indices());
+    }
+
+    @Test
+    @DisplayName("Should skip points rejected by the search filter")
+    void testNearestFiltered() {
+        double[] latitudes = {1.300, 1.301, 1.302, 1.303};
+        double[] longitudes = {103.800, 103.800, 103.800, 103.800};
+        SpatialGridIndex index = SpatialGridIndex.build(latitudes, longitudes, 0.01);
+
+        SpatialGridIndex.Search search = SpatialGridIndex.Search.of(1.300, 103.800, 2).where(i -> i % 2 == 1);
+        assertArrayEquals(new int[]{1, 3}, index.nearest(search).indices());
+    }
+
+    @Test
+    @DisplayName("Should return empty result for empty index or non-positive k")
+    void testNearestEmpty() {
+        SpatialGridIndex empty = SpatialGridIndex.build(new double[0], new double[0], 0.01);
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.nearest(1.3, 103.8, 5).size());
+
+        SpatialGridIndex single = SpatialGridIndex.build(new double[]{1.3}, new double[]{103.8}, 0.01);
+        assertEquals(0, single.nearest(1.3, 103.8, 0).size());
+    }
+
+    @Test
+    @DisplayName("Should keep a bounded grid when coordinates contain far outliers")
+    void testOutliers() {
+        double[] latitudes = {0.0, 1.30, 1.31};
+        double[] longitudes = {0.0, 103.80, 103.81};
+        SpatialGridIndex index = SpatialGridIndex.build(latitudes, longitudes, 0.0001);
+
+        assertArrayEquals(new int[]{1, 2}, index.nearest(1.30, 103.80, 2).indices());
+    }
+
+    @Test
+    @DisplayName("Should reject mismatched coordinate arrays")
+    void testInvalidInput() {
+        assertThrows(IllegalArgumentException.class,
+                () -> SpatialGridIndex.build(new double[]{1.0}, new double[0], 0.01));
+        assertThrows(IllegalArgumentException.class,
+                () -> SpatialGridIndex.build(new double[0], new double[0], 0));
+        assertThrows(IllegalArgumentException.class,
+                () -> SpatialGridIndex.build(new double[]{1.0}, new double[]{103.0}, new double[]{0}, null, 0.01));
+    }
+}
@@ -0,0 +1,49 @@
+package com.wego.carpark.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ThresholdIndexTest {
+
+    @Test
+    @DisplayName("Should visit only the ids whose threshold lies in the range, in threshold order")
+    void testForEachInRange() {
+        ThresholdIndex index = ThresholdIndex.empty()
+                .with(50, 1)
+                .with(10, 2)
+                .with(30, 3)
+                .with(30, 4)
+                .with(70, 5);
+
+        List<Long> visited = new ArrayList<>();
+        assertEquals(3, index.forEachInRange(10, 31, visited::add));
+        assertEquals(List.of(2L, 3L, 4L), visited);
+
+        visited.clear();
+        assertEquals(0, index.forEachInRange(31, 50, visited::add));
+        assertEquals(0, index.forEachInRange(60, 60, visited::add));
+        assertEquals(0, index.forEachInRange(80, 60, visited::add));
+        assertTrue(visited.isEmpty());
+    }
+
+    @Test
+    @DisplayName("Should remove an id without changing the original index")
+    void testWithout() {
+        ThresholdIndex index = ThresholdIndex.empty().with(5, 1).with(5, 2);
+
+        ThresholdIndex removed = index.without(1);
+
+        assertEquals(2, index.size());
+        assertEquals(1, removed.size());
+        List<Long> visited = new ArrayList<>();
+        removed.forEachInRange(0, 10, visited::add);
+        assertEquals(List.of(2L), visited);
+        assertSame(removed, removed.without(99));
+        assertSame(ThresholdIndex.empty(), removed.without(2));
+    }
+}
@@ -0,0 +1,71 @@
+package com.wego.carpark.utils;
+
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopKHeapTest {
+
+    @Test
+    @DisplayName("Should keep the k smallest distances in ascending order")
+    void testKeepsSmallest() {
+        Random random = new Random(7);
+        double[] values = new double[1000];
+        TopKHeap heap = new TopKHeap(25);
+        for (int i = 0; i < values.length; i++) {
+            values[i] = random.nextDouble() * 100;
+            heap.offer(values[i], i);
+        }
+
+        int[] indices = new int[25];
+        double[] distances = new double[25];
+        assertEquals(25, heap.drainSorted(indices, distances));
+
+        double[] expected = Arrays.copyOf(values, values.length);
+        Arrays.sort(expected);
+        assertArrayEquals(Arrays.copyOf(expected, 25), distances);
+        for (int i = 0; i < 25; i++) {
+            assertEquals(values[indices[i]], distances[i]);
+        }
+        assertEquals(0, heap.size());
+    }
+
+    @Test
+    @DisplayName("Should break distance ties by index")
+    void testTieBreakByIndex() {
+        TopKHeap heap = new TopKHeap(2);
+        heap.offer(1.0, 9);
+        heap.offer(1.0, 3);
+        heap.offer(1.0, 5);
+        assertFalse(heap.offer(1.0, 7));
+
+        int[] indices = new int[2];
+        heap.drainSorted(indices, new double[2]);
+        assertArrayEquals(new int[]{3, 5}, indices);
+    }
+
+    @Test
+    @DisplayName("Should reject candidates worse than the current maximum once full")
+    void testRejectsWhenFull() {
+        TopKHeap heap = new TopKHeap(2);
+        assertTrue(heap.offer(5.0, 0));
+        assertTrue(heap.offer(3.0, 1));
+        assertTrue(heap.isFull());
+        assertEquals(5.0, heap.worstDistance());
+        assertFalse(heap.offer(6.0, 2));
+        assertTrue(heap.offer(4.0, 3));
+        assertEquals(4.0, heap.worstDistance());
+    }
+
+    @Test
+    @DisplayName("Should accept nothing with zero capacity")
+    void testZeroCapacity() {
+        TopKHeap heap = new TopKHeap(0);
+        assertFalse(heap.offer(1.0, 0));
+        assertEquals(0, heap.drainSorted(new int[0], new double[0]));
+    }
+}
@@ -0,0 +1,34 @@
+-- Schema as Hibernate (ddl-auto: update) created it before availability was stored per lot type,
+-- plus the single-column unique index from the old .docker/sql/initdb.sql
+create table car_parks (
+    latitude float(53) not null,
+    longitude float(53) not null,
+    svy21x float(53),
+    svy21y float(53),
+    total_lots integer not null,
+    address varchar(255) not null,
+    id varchar(255) not null,
+    primary key (id)
+);
+
+create table car_park_availability (
+    available_lots integer not null,
+    id bigint generated by default as identity,
+    last_updated timestamp(6) with time zone,
+    car_park_id varchar(255),
+    primary key (id)
+);
+
+alter table if exists car_park_availability
+    add constraint uk_cpa_car_park_id unique (car_park_id);
+
+create unique index uniq_cpa_carparkid on car_park_availability (car_park_id);
+
+alter table if exists car_park_availability
+    add constraint fk_cpa_car_park foreign key (car_park_id) references car_parks;
+
+insert into car_parks (id, address, latitude, longitude, total_lots)
+values ('TEST001', 'Test Car Park TEST001', 1.3521, 103.8198, 100);
+
+insert into car_park_availability (car_park_id, available_lots, last_updated)
+values ('TEST001', 10, '2025-08-20T10:00:00Z');